@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a bulk insert into the database
+ * Counts inserted rows and records every row that was rejected, with the reason
+ */
+public class BatchResult {
+    private int inserted;
+    private final List<Failure> failures = new ArrayList<>();
+    
+    // A single rejected row
+    public static class Failure {
+        private final String key;
+        private final String message;
+        
+        public Failure(String key, String message) {
+            this.key = key;
+            this.message = message;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        @Override
+        public String toString() {
+            return key + ": " + message;
+        }
+    }
+    
+    void addInserted(int count) {
+        inserted += count;
+    }
+    
+    void addFailure(String key, String message) {
+        failures.add(new Failure(key, message));
+    }
+    
+    public int getInserted() {
+        return inserted;
+    }
+    
+    public int getFailedCount() {
+        return failures.size();
+    }
+    
+    public int getTotal() {
+        return inserted + failures.size();
+    }
+    
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+    
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+    
+    @Override
+    public String toString() {
+        return "Inserted: " + inserted + ", Failed: " + failures.size();
+    }
+}
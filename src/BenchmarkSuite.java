@@ -0,0 +1,429 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Microbenchmarks for SchoolDB and the domain model, with results that can be diffed between releases
+ * Follows the JMH method: warmup iterations, then timed measurement iterations of back-to-back calls,
+ * results consumed so the JIT cannot drop them, average time per operation with a 99.9% confidence
+ * error. JMH itself cannot be used because its generated code has to import the benchmark classes,
+ * and the application lives in the default package. Results are written in JMH's JSON result format,
+ * one benchmark per line; "-compare" prints the change between two result files.
+ *
+ * Usage: BenchmarkSuite [regex...] [-p size=1000,100000,1000000] [-wi 3] [-i 5] [-r 1] [-rff file]
+ *        BenchmarkSuite -compare baseline.json current.json
+ */
+public class BenchmarkSuite {
+    private static final int[] DEFAULT_SIZES = {1000, 100000, 1000000};
+    private static final int DEFAULT_WARMUP_ITERATIONS = 3;
+    private static final int DEFAULT_MEASUREMENT_ITERATIONS = 5;
+    private static final int DEFAULT_ITERATION_SECONDS = 1;
+    private static final String DEFAULT_RESULT_FILE = "bench-results.json";
+    private static final long SEED = 42;
+    
+    // Courses a new student joins in the enrollment benchmark
+    private static final int ENROLLMENTS_PER_STUDENT = 3;
+    
+    // A large lecture course for the in-memory benchmarks
+    private static final int LECTURE_SEATS = 500;
+    
+    private static final String[] FIRST_NAMES = {"Ahmad", "Mohammed", "Omar", "Sara", "Lina", "Yousef",
+            "Khaled", "Noor", "Huda", "Ali", "Maryam", "Hassan", "أحمد", "محمد", "فاطمة", "عمر"};
+    private static final String[] LAST_NAMES = {"Ameen", "Haddad", "Khalil", "Nasser", "Saleh", "Mansour",
+            "Qasem", "Darwish", "Hamdan", "Jaber", "العلي", "الخطيب", "النجار", "الحسن"};
+    private static final String[] SUBJECTS = {"Mathematics", "Physics", "Chemistry", "Biology", "الرياضيات",
+            "English", "History", "التاريخ"};
+    
+    // Two-sided 99.9% Student's t quantiles for 1..10 degrees of freedom; the normal value beyond
+    private static final double[] T_999 = {636.62, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041,
+            4.781, 4.587};
+    private static final double Z_999 = 3.291;
+    
+    // Results go here so the JIT cannot treat a benchmarked call as dead code
+    private static volatile int sink;
+    
+    // One timed call; returns whatever the call produced
+    private interface Operation {
+        Object run(Dataset data, Random random) throws Exception;
+    }
+    
+    private static class Benchmark {
+        final String name;
+        final boolean usesDatabase;
+        final Operation operation;
+        
+        Benchmark(String name, boolean usesDatabase, Operation operation) {
+            this.name = name;
+            this.usesDatabase = usesDatabase;
+            this.operation = operation;
+        }
+    }
+    
+    // A populated scratch database of a given size
+    private static class Dataset implements AutoCloseable {
+        final int students;
+        final int courses;
+        final File file;
+        SchoolDB database;
+        int nextId;
+        
+        Dataset(int students, int courses, File file) {
+            this.students = students;
+            this.courses = courses;
+            this.file = file;
+            this.nextId = students + 1;
+        }
+        
+        @Override
+        public void close() {
+            if (database != null) {
+                database.closeConnection();
+            }
+            file.delete();
+            new File(file.getPath() + "-wal").delete();
+            new File(file.getPath() + "-shm").delete();
+        }
+    }
+    
+    private static class Result {
+        final String benchmark;
+        final Map<String, String> params;
+        final double[] scores; // microseconds per operation, one per measurement iteration
+        
+        Result(String benchmark, Map<String, String> params, double[] scores) {
+            this.benchmark = benchmark;
+            this.params = params;
+            this.scores = scores;
+        }
+        
+        double mean() {
+            double sum = 0;
+            for (double score : scores) {
+                sum += score;
+            }
+            return sum / scores.length;
+        }
+        
+        // Half-width of the 99.9% confidence interval, as JMH reports it
+        double error() {
+            int n = scores.length;
+            if (n < 2) {
+                return Double.NaN;
+            }
+            double mean = mean();
+            double squares = 0;
+            for (double score : scores) {
+                squares += (score - mean) * (score - mean);
+            }
+            double t = n - 1 <= T_999.length ? T_999[n - 2] : Z_999;
+            return t * Math.sqrt(squares / (n - 1)) / Math.sqrt(n);
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("-compare")) {
+            compare(args[1], args[2]);
+            return;
+        }
+        
+        List<Pattern> filters = new ArrayList<>();
+        int[] sizes = DEFAULT_SIZES;
+        int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+        int measurementIterations = DEFAULT_MEASUREMENT_ITERATIONS;
+        int iterationSeconds = DEFAULT_ITERATION_SECONDS;
+        String resultFile = DEFAULT_RESULT_FILE;
+        
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-p":
+                    sizes = parseSizes(args[++i]);
+                    break;
+                case "-wi":
+                    warmupIterations = Integer.parseInt(args[++i]);
+                    break;
+                case "-i":
+                    measurementIterations = Integer.parseInt(args[++i]);
+                    break;
+                case "-r":
+                    iterationSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "-rff":
+                    resultFile = args[++i];
+                    break;
+                default:
+                    filters.add(Pattern.compile(args[i]));
+            }
+        }
+        
+        List<Benchmark> selected = new ArrayList<>();
+        for (Benchmark benchmark : benchmarks()) {
+            if (filters.isEmpty() || filters.stream().anyMatch(p -> p.matcher(benchmark.name).find())) {
+                selected.add(benchmark);
+            }
+        }
+        if (selected.isEmpty()) {
+            System.err.println("No benchmarks match " + filters);
+            return;
+        }
+        
+        System.out.println("=== SchoolDB Benchmark Suite ===\n");
+        List<Result> results = new ArrayList<>();
+        
+        // In-memory benchmarks do not depend on the dataset size
+        for (Benchmark benchmark : selected) {
+            if (!benchmark.usesDatabase) {
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("seats", String.valueOf(LECTURE_SEATS));
+                results.add(measure(benchmark, null, params, warmupIterations, measurementIterations, iterationSeconds));
+            }
+        }
+        
+        if (selected.stream().anyMatch(b -> b.usesDatabase)) {
+            for (int size : sizes) {
+                try (Dataset data = createDataset(size)) {
+                    for (Benchmark benchmark : selected) {
+                        if (benchmark.usesDatabase) {
+                            Map<String, String> params = new LinkedHashMap<>();
+                            params.put("size", String.valueOf(size));
+                            results.add(measure(benchmark, data, params, warmupIterations, measurementIterations,
+                                    iterationSeconds));
+                        }
+                    }
+                }
+            }
+        }
+        
+        writeResults(results, resultFile, warmupIterations, measurementIterations);
+        System.out.println("\nResults written to " + resultFile);
+    }
+    
+    private static List<Benchmark> benchmarks() {
+        List<Benchmark> list = new ArrayList<>();
+        
+        // CRUD
+        list.add(new Benchmark("SchoolDB.getStudentById", true,
+                (data, random) -> data.database.getStudentById(1 + random.nextInt(data.students))));
+        list.add(new Benchmark("SchoolDB.updateStudent", true, (data, random) -> {
+            int id = 1 + random.nextInt(data.students);
+            return data.database.updateStudent(new Student(id, studentName(id), 14 + id % 5, 9 + random.nextInt(4)));
+        }));
+        list.add(new Benchmark("SchoolDB.insertDeleteStudent", true, (data, random) -> {
+            int id = data.nextId++;
+            data.database.insertStudent(new Student(id, studentName(id), 15, 10));
+            return data.database.deleteStudent(id);
+        }));
+        
+        // Join hydration: every course with its teacher
+        list.add(new Benchmark("SchoolDB.getCourses", true, (data, random) -> data.database.getCourses()));
+        
+        // Search
+        list.add(new Benchmark("SchoolDB.searchStudentsByName", true,
+                (data, random) -> data.database.searchStudentsByName(LAST_NAMES[random.nextInt(LAST_NAMES.length)])));
+        list.add(new Benchmark("SchoolDB.searchTeachersByName", true,
+                (data, random) -> data.database.searchTeachersByName(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)])));
+        list.add(new Benchmark("SchoolDB.searchCoursesByTitle", true,
+                (data, random) -> data.database.searchCoursesByTitle(SUBJECTS[random.nextInt(SUBJECTS.length)])));
+        
+        // Enrollment: a new student joins three courses, then leaves (the enrollments cascade)
+        list.add(new Benchmark("SchoolDB.enrollStudentInCourse", true, (data, random) -> {
+            int id = data.nextId++;
+            data.database.insertStudent(new Student(id, studentName(id), 15, 10));
+            int first = random.nextInt(data.courses);
+            for (int i = 0; i < ENROLLMENTS_PER_STUDENT; i++) {
+                data.database.enrollStudentInCourse(id, 1 + (first + i) % data.courses);
+            }
+            return data.database.deleteStudent(id);
+        }));
+        
+        // Domain model: fill a lecture course, then check every seat and as many absent IDs
+        Student[] lectureStudents = new Student[LECTURE_SEATS];
+        for (int i = 0; i < LECTURE_SEATS; i++) {
+            lectureStudents[i] = new Student(i + 1, studentName(i + 1), 18, 12);
+        }
+        Course lecture = new Course(1, "Lecture", LECTURE_SEATS);
+        for (Student student : lectureStudents) {
+            lecture.addStudent(student);
+        }
+        list.add(new Benchmark("Course.addStudent", false, (data, random) -> {
+            Course course = new Course(2, "Lecture", LECTURE_SEATS);
+            for (Student student : lectureStudents) {
+                course.addStudent(student);
+            }
+            return course;
+        }));
+        list.add(new Benchmark("Course.isStudentEnrolled", false, (data, random) -> {
+            int found = 0;
+            for (int id = 1; id <= 2 * LECTURE_SEATS; id++) {
+                if (lecture.isStudentEnrolled(id)) {
+                    found++;
+                }
+            }
+            return found;
+        }));
+        
+        return list;
+    }
+    
+    // Warm up, then time back-to-back calls for each measurement iteration
+    private static Result measure(Benchmark benchmark, Dataset data, Map<String, String> params,
+                                  int warmupIterations, int measurementIterations, int iterationSeconds)
+            throws Exception {
+        System.out.println("# " + benchmark.name + " " + params);
+        Random random = new Random(SEED);
+        long iterationNanos = iterationSeconds * 1_000_000_000L;
+        
+        for (int i = 1; i <= warmupIterations; i++) {
+            System.out.printf(Locale.ROOT, "  warmup %d: %.3f us/op%n", i,
+                    runIteration(benchmark, data, random, iterationNanos));
+        }
+        double[] scores = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            scores[i] = runIteration(benchmark, data, random, iterationNanos);
+            System.out.printf(Locale.ROOT, "  iteration %d: %.3f us/op%n", i + 1, scores[i]);
+        }
+        
+        Result result = new Result(benchmark.name, params, scores);
+        System.out.printf(Locale.ROOT, "  result: %.3f ± %.3f us/op%n", result.mean(), result.error());
+        return result;
+    }
+    
+    // Microseconds per operation over one iteration; always at least one call
+    private static double runIteration(Benchmark benchmark, Dataset data, Random random, long iterationNanos)
+            throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long operations = 0;
+        long now;
+        do {
+            consume(benchmark.operation.run(data, random));
+            operations++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        return (now - start) / 1000.0 / operations;
+    }
+    
+    private static void consume(Object value) {
+        sink ^= System.identityHashCode(value);
+    }
+    
+    // Generate a scratch database without syncing, then reopen it with the default profile to measure
+    private static Dataset createDataset(int size) throws Exception {
+        File file = File.createTempFile("school-bench", ".db");
+        String url = "jdbc:sqlite:" + file.getAbsolutePath();
+        DatasetGenerator.Report report;
+        
+        SchoolDB loader = new SchoolDB(url, 0, DurabilityProfile.BULK_LOAD);
+        try {
+            report = new DatasetGenerator(size, SEED).generate(loader);
+        } finally {
+            loader.closeConnection();
+        }
+        
+        Dataset data = new Dataset(report.getStudents(), report.getCourses(), file);
+        data.database = new SchoolDB(url, 4);
+        System.out.println("\n# Dataset: " + report);
+        return data;
+    }
+    
+    private static String studentName(int seed) {
+        return FIRST_NAMES[seed % FIRST_NAMES.length] + " " + LAST_NAMES[(seed / FIRST_NAMES.length) % LAST_NAMES.length];
+    }
+    
+    private static int[] parseSizes(String param) {
+        if (!param.startsWith("size=")) {
+            throw new IllegalArgumentException("Unknown parameter: " + param);
+        }
+        String[] values = param.substring("size=".length()).split(",");
+        int[] sizes = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            sizes[i] = Integer.parseInt(values[i].trim());
+        }
+        return sizes;
+    }
+    
+    // JMH's JSON result format, one result per line so files diff cleanly
+    private static void writeResults(List<Result> results, String path, int warmupIterations,
+                                     int measurementIterations) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(
+                Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)))) {
+            out.println("[");
+            for (int r = 0; r < results.size(); r++) {
+                Result result = results.get(r);
+                StringBuilder params = new StringBuilder();
+                for (Map.Entry<String, String> param : result.params.entrySet()) {
+                    params.append(params.length() == 0 ? "" : ",")
+                            .append('"').append(param.getKey()).append("\":\"").append(param.getValue()).append('"');
+                }
+                StringBuilder raw = new StringBuilder();
+                for (double score : result.scores) {
+                    raw.append(raw.length() == 0 ? "" : ",").append(number(score));
+                }
+                double mean = result.mean();
+                double error = result.error();
+                out.print("{\"benchmark\":\"" + result.benchmark + "\",\"mode\":\"avgt\",\"threads\":1,\"forks\":0," +
+                        "\"warmupIterations\":" + warmupIterations + ",\"measurementIterations\":" + measurementIterations + "," +
+                        "\"params\":{" + params + "}," +
+                        "\"primaryMetric\":{\"score\":" + number(mean) + ",\"scoreError\":" + number(error) + "," +
+                        "\"scoreConfidence\":[" + number(mean - error) + "," + number(mean + error) + "]," +
+                        "\"scoreUnit\":\"us/op\",\"rawData\":[[" + raw + "]]}," +
+                        "\"secondaryMetrics\":{}}");
+                out.println(r < results.size() - 1 ? "," : "");
+            }
+            out.println("]");
+        }
+    }
+    
+    private static String number(double value) {
+        return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+    }
+    
+    // Print the change of each benchmark present in both result files written by this suite
+    private static void compare(String baselinePath, String currentPath) throws IOException {
+        Map<String, double[]> baseline = readScores(baselinePath);
+        Map<String, double[]> current = readScores(currentPath);
+        
+        System.out.printf(Locale.ROOT, "%-45s %14s %14s %9s%n", "Benchmark", "Baseline us/op", "Current us/op", "Change");
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            double[] after = entry.getValue();
+            double change = (after[0] - before[0]) / before[0] * 100;
+            // Only flag changes larger than the two error margins together
+            boolean significant = !Double.isNaN(before[1]) && !Double.isNaN(after[1])
+                    && Math.abs(after[0] - before[0]) > before[1] + after[1];
+            System.out.printf(Locale.ROOT, "%-45s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before[0], after[0],
+                    change, significant ? (change > 0 ? "  slower" : "  faster") : "");
+        }
+    }
+    
+    private static final Pattern RESULT_LINE = Pattern.compile(
+            "\"benchmark\":\"([^\"]+)\".*\"params\":\\{([^}]*)\\}.*\"score\":([-0-9.]+),\"scoreError\":(\"NaN\"|[-0-9.]+)");
+    
+    // Benchmark name with its params -> {score, error}
+    private static Map<String, double[]> readScores(String path) throws IOException {
+        Map<String, double[]> scores = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8)) {
+            Matcher m = RESULT_LINE.matcher(line);
+            if (m.find()) {
+                String key = m.group(1) + (m.group(2).isEmpty() ? "" : " {" + m.group(2).replace("\"", "") + "}");
+                double error = m.group(4).startsWith("\"") ? Double.NaN : Double.parseDouble(m.group(4));
+                scores.put(key, new double[] {Double.parseDouble(m.group(3)), error});
+            }
+        }
+        return scores;
+    }
+}
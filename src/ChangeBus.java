@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers committed data changes to registered listeners
+ * Changes are coalesced per entity: an insert followed by updates arrives as one insert, and a row
+ * inserted and deleted before delivery is not reported at all. Listeners registered with an executor
+ * are called on it, and changes published while an earlier batch is still waiting are merged into it,
+ * so a slow listener never blocks the publisher and never falls behind by more than one batch.
+ * Each commit is numbered while it still holds the database writer, and batches are delivered in
+ * that order even when the committing threads reach publish() the other way round.
+ */
+public class ChangeBus {
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    
+    // Commit order: numbers handed out by nextSequence(), and batches waiting for an earlier number
+    private final AtomicLong sequences = new AtomicLong();
+    private final Map<Long, List<ChangeEvent>> waiting = new HashMap<>();
+    private long nextDelivery;
+    
+    // Receives the changes of one commit (or several, if delivery was delayed)
+    public interface Listener {
+        void onChanges(List<ChangeEvent> changes);
+    }
+    
+    private static class Subscription {
+        final Listener listener;
+        final Executor executor;
+        
+        // Changes waiting for the executor to run; guarded by this subscription
+        private Map<Object, ChangeEvent> pending;
+        
+        Subscription(Listener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+        
+        void deliver(List<ChangeEvent> changes) {
+            if (executor == null) {
+                notify(changes);
+                return;
+            }
+            
+            synchronized (this) {
+                if (pending != null) {
+                    coalesce(pending, changes);
+                    return; // merged into the batch that is already scheduled
+                }
+                pending = new LinkedHashMap<>();
+                coalesce(pending, changes);
+            }
+            executor.execute(this::drain);
+        }
+        
+        private void drain() {
+            List<ChangeEvent> batch;
+            synchronized (this) {
+                batch = new ArrayList<>(pending.values());
+                pending = null;
+            }
+            if (!batch.isEmpty()) {
+                notify(batch);
+            }
+        }
+        
+        private void notify(List<ChangeEvent> changes) {
+            try {
+                listener.onChanges(Collections.unmodifiableList(changes));
+            } catch (RuntimeException e) {
+                System.err.println("Change listener failed: " + e);
+            }
+        }
+    }
+    
+    // Call the listener on a publishing thread, right after the commit (and any earlier ones) is published
+    public void addListener(Listener listener) {
+        subscriptions.add(new Subscription(listener, null));
+    }
+    
+    // Call the listener on the given executor, e.g. SwingUtilities::invokeLater
+    public void addListener(Listener listener, Executor executor) {
+        subscriptions.add(new Subscription(listener, Objects.requireNonNull(executor)));
+    }
+    
+    public void removeListener(Listener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+    
+    public boolean hasListeners() {
+        return !subscriptions.isEmpty();
+    }
+    
+    // Number the next commit; call while the commit still holds the database writer
+    public long nextSequence() {
+        return sequences.getAndIncrement();
+    }
+    
+    // Publish the committed changes numbered by nextSequence(). Every number must be published,
+    // even with no changes, since later commits are held back until it is.
+    public void publish(long sequence, List<ChangeEvent> changes) {
+        synchronized (waiting) {
+            waiting.put(sequence, changes);
+            List<ChangeEvent> batch;
+            while ((batch = waiting.remove(nextDelivery)) != null) {
+                nextDelivery++;
+                deliver(batch);
+            }
+        }
+    }
+    
+    // Coalesce one commit's changes and hand them to every listener
+    private void deliver(List<ChangeEvent> changes) {
+        if (changes.isEmpty() || subscriptions.isEmpty()) {
+            return;
+        }
+        
+        Map<Object, ChangeEvent> merged = new LinkedHashMap<>();
+        coalesce(merged, changes);
+        if (merged.isEmpty()) {
+            return;
+        }
+        
+        List<ChangeEvent> batch = new ArrayList<>(merged.values());
+        for (Subscription subscription : subscriptions) {
+            subscription.deliver(batch);
+        }
+    }
+    
+    // Merge changes into a batch keyed by entity, keeping the position of the first change to each entity
+    static void coalesce(Map<Object, ChangeEvent> batch, List<ChangeEvent> changes) {
+        for (ChangeEvent change : changes) {
+            Object key = new ChangeEvent(change.getEntity(), ChangeEvent.Kind.UPDATE, change.getId(), change.getRelatedId());
+            ChangeEvent previous = batch.get(key);
+            if (previous == null) {
+                batch.put(key, change);
+                continue;
+            }
+            
+            ChangeEvent.Kind kind = merge(previous.getKind(), change.getKind());
+            if (kind == null) {
+                batch.remove(key);
+            } else if (kind != previous.getKind()) {
+                batch.put(key, new ChangeEvent(change.getEntity(), kind, change.getId(), change.getRelatedId()));
+            }
+        }
+    }
+    
+    // Net effect of two changes to the same entity, or null if they cancel out
+    private static ChangeEvent.Kind merge(ChangeEvent.Kind first, ChangeEvent.Kind second) {
+        if (first == ChangeEvent.Kind.INSERT) {
+            return second == ChangeEvent.Kind.DELETE ? null : ChangeEvent.Kind.INSERT;
+        }
+        if (first == ChangeEvent.Kind.DELETE && second == ChangeEvent.Kind.INSERT) {
+            return ChangeEvent.Kind.UPDATE;
+        }
+        return second;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Describes a single change to the school data: which kind of entity, which one, and what happened
+ * Views use it to update the affected row instead of reloading whole tables.
+ */
+public class ChangeEvent {
+    public enum Entity { STUDENT, TEACHER, COURSE, ENROLLMENT }
+    
+    public enum Kind { INSERT, UPDATE, DELETE }
+    
+    private final Entity entity;
+    private final Kind kind;
+    private final int id;
+    private final int relatedId;
+    
+    // Constructor - for students, teachers and courses
+    public ChangeEvent(Entity entity, Kind kind, int id) {
+        this(entity, kind, id, 0);
+    }
+    
+    // Constructor - for enrollments the id is the student and relatedId the course
+    public ChangeEvent(Entity entity, Kind kind, int id, int relatedId) {
+        this.entity = entity;
+        this.kind = kind;
+        this.id = id;
+        this.relatedId = relatedId;
+    }
+    
+    public static ChangeEvent enrollment(Kind kind, int studentId, int courseId) {
+        return new ChangeEvent(Entity.ENROLLMENT, kind, studentId, courseId);
+    }
+    
+    public Entity getEntity() {
+        return entity;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    public int getRelatedId() {
+        return relatedId;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ChangeEvent)) {
+            return false;
+        }
+        ChangeEvent other = (ChangeEvent) o;
+        return entity == other.entity && kind == other.kind && id == other.id && relatedId == other.relatedId;
+    }
+    
+    @Override
+    public int hashCode() {
+        return ((entity.hashCode() * 31 + kind.hashCode()) * 31 + id) * 31 + relatedId;
+    }
+    
+    @Override
+    public String toString() {
+        return entity == Entity.ENROLLMENT
+                ? kind + " " + entity + " student " + id + " / course " + relatedId
+                : kind + " " + entity + " " + id;
+    }
+}
@@ -0,0 +1,286 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of SQLite connections
+ * Keeps one writer connection and a fixed set of reader connections in WAL mode,
+ * so reads can run while a write is in progress
+ */
+public class ConnectionPool {
+    // SQLite result codes reported when another connection holds the lock
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    
+    private static final long BASE_BACKOFF_MS = 10;
+    private static final long MAX_BACKOFF_MS = 500;
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    
+    private final String url;
+    private final int busyTimeoutMs;
+    private final int maxRetries;
+    private final DurabilityProfile profile;
+    
+    private final Connection writer;
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+    private final List<Connection> readerConnections = new ArrayList<>();
+    private final BlockingQueue<Connection> idleReaders;
+    private final Map<Connection, StatementCache> statementCaches = new IdentityHashMap<>();
+    private volatile SlowQueryLog slowQueryLog;
+    
+    // Unit of work executed against a borrowed connection
+    public interface SqlWork<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+    
+    // Constructor - opens the writer and all reader connections up front
+    public ConnectionPool(String url, int readerCount, int busyTimeoutMs, int maxRetries) throws SQLException {
+        this(url, readerCount, busyTimeoutMs, maxRetries, DurabilityProfile.SAFE);
+    }
+    
+    // Constructor - as above, with the durability settings applied to every connection
+    public ConnectionPool(String url, int readerCount, int busyTimeoutMs, int maxRetries,
+                          DurabilityProfile profile) throws SQLException {
+        if (readerCount < 0) {
+            throw new IllegalArgumentException("Reader count cannot be negative");
+        }
+        
+        this.url = url;
+        this.busyTimeoutMs = busyTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.profile = profile;
+        this.idleReaders = new ArrayBlockingQueue<>(Math.max(1, readerCount));
+        
+        // The writer begins transactions with BEGIN IMMEDIATE so a transaction takes the
+        // write lock up front instead of failing with SQLITE_BUSY halfway through
+        writer = openConnection(true);
+        try (Statement stmt = writer.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+        }
+        
+        try {
+            for (int i = 0; i < readerCount; i++) {
+                Connection reader = openConnection(false);
+                try (Statement stmt = reader.createStatement()) {
+                    stmt.execute("PRAGMA query_only = 1");
+                }
+                readerConnections.add(reader);
+                idleReaders.add(reader);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+    
+    private Connection openConnection(boolean immediateTransactions) throws SQLException {
+        Properties properties = new Properties();
+        if (immediateTransactions) {
+            properties.setProperty("transaction_mode", "IMMEDIATE");
+        }
+        
+        Connection connection = DriverManager.getConnection(url, properties);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+            stmt.execute("PRAGMA foreign_keys = ON");
+            profile.apply(stmt);
+        }
+        statementCaches.put(connection, new StatementCache(connection, STATEMENT_CACHE_SIZE));
+        return connection;
+    }
+    
+    // Run read-only work on an idle reader connection
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        // Inside a write the caller must see its own uncommitted changes,
+        // and with no readers configured every call goes through the writer
+        if (writeLock.isHeldByCurrentThread() || readerConnections.isEmpty()) {
+            return write(work);
+        }
+        
+        Connection reader = borrowReader();
+        try {
+            return executeWithRetry(work, reader, true);
+        } finally {
+            idleReaders.offer(reader);
+        }
+    }
+    
+    // Run work on the single writer connection, one thread at a time.
+    // Calls nested inside another write reuse the connection and are not retried on their own,
+    // since only the outermost work can restart a transaction.
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            return executeWithRetry(work, writer, writeLock.getHoldCount() == 1);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    // Borrow a connection for reading that stays checked out until release(),
+    // e.g. for a cursor that is consumed after the call returns.
+    // Acquire and release must happen on the same thread.
+    public Connection acquireReader() throws SQLException {
+        if (writeLock.isHeldByCurrentThread() || readerConnections.isEmpty()) {
+            writeLock.lock();
+            return writer;
+        }
+        return borrowReader();
+    }
+    
+    // Return a connection obtained from acquireReader()
+    public void release(Connection connection) {
+        if (connection == writer) {
+            writeLock.unlock();
+        } else {
+            idleReaders.offer(connection);
+        }
+    }
+    
+    // Get a cached prepared statement for a connection handed out by this pool.
+    // The statement stays open for reuse, so callers close only its result sets.
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        StatementCache cache = statementCaches.get(connection);
+        if (cache == null) {
+            throw new SQLException("Connection does not belong to this pool");
+        }
+        PreparedStatement pstmt = cache.prepare(sql);
+        SlowQueryLog log = slowQueryLog;
+        return log == null ? pstmt : log.watch(sql, pstmt);
+    }
+    
+    // Time statements from prepare() against the log's threshold; null stops timing
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+    
+    private Connection borrowReader() throws SQLException {
+        try {
+            Connection reader = idleReaders.poll(busyTimeoutMs, TimeUnit.MILLISECONDS);
+            if (reader == null) {
+                throw new SQLException("Timed out waiting for a reader connection");
+            }
+            return reader;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+    }
+    
+    // Retry work that failed because the database was locked, with exponential backoff
+    private <T> T executeWithRetry(SqlWork<T> work, Connection connection, boolean retry) throws SQLException {
+        int attempt = 0;
+        while (true) {
+            try {
+                return work.execute(connection);
+            } catch (SQLException e) {
+                if (!retry || !isBusy(e) || attempt >= maxRetries) {
+                    throw e;
+                }
+                backoff(attempt++);
+            }
+        }
+    }
+    
+    // True when the failure (or any cause) is SQLITE_BUSY or SQLITE_LOCKED
+    static boolean isBusy(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                int code = ((SQLException) t).getErrorCode();
+                if (code == SQLITE_BUSY || code == SQLITE_LOCKED) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private static void backoff(int attempt) throws SQLException {
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << attempt);
+        delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1); // jitter
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for database lock", e);
+        }
+    }
+    
+    // True while the calling thread is inside write work, e.g. in a transaction
+    public boolean isWriting() {
+        return writeLock.isHeldByCurrentThread();
+    }
+    
+    public DurabilityProfile getProfile() {
+        return profile;
+    }
+    
+    public int getReaderCount() {
+        return readerConnections.size();
+    }
+    
+    public long getStatementCacheHits() {
+        long hits = 0;
+        for (StatementCache cache : statementCaches.values()) {
+            hits += cache.getHits();
+        }
+        return hits;
+    }
+    
+    public long getStatementCacheMisses() {
+        long misses = 0;
+        for (StatementCache cache : statementCaches.values()) {
+            misses += cache.getMisses();
+        }
+        return misses;
+    }
+    
+    public boolean isOpen() {
+        try {
+            return writer != null && !writer.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    // Close every cached statement and pooled connection
+    public void close() {
+        writeLock.lock();
+        try {
+            for (StatementCache cache : statementCaches.values()) {
+                cache.close();
+            }
+            for (Connection reader : readerConnections) {
+                closeQuietly(reader);
+            }
+            readerConnections.clear();
+            idleReaders.clear();
+            closeQuietly(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,4 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 
 /**
  * Course class demonstrating aggregation relationship (Has-a)
@@ -9,7 +8,7 @@ public class Course {
     private int courseId;
     private String title;
     private Teacher teacher; // Aggregation - Course HAS-A Teacher
-    private List<Student> enrolledStudents;
+    private IntHashMap<Student> enrolledStudents; // by student ID, in enrollment order
     private int maxCapacity;
     
     // Constructor
@@ -17,7 +16,7 @@ public class Course {
         this.courseId = courseId;
         this.title = title;
         this.maxCapacity = maxCapacity;
-        this.enrolledStudents = new ArrayList<>();
+        this.enrolledStudents = new IntHashMap<>();
     }
     
     // Constructor with teacher
@@ -59,8 +58,9 @@ public class Course {
         this.maxCapacity = maxCapacity;
     }
     
-    public List<Student> getEnrolledStudents() {
-        return new ArrayList<>(enrolledStudents);
+    // Read-only view in enrollment order; copy it to keep a snapshot
+    public Collection<Student> getEnrolledStudents() {
+        return enrolledStudents.values();
     }
     
     // Add student to course
@@ -73,20 +73,19 @@ public class Course {
             return false; // Course is full
         }
         
-        // Check if student is already enrolled
-        for (Student enrolledStudent : enrolledStudents) {
-            if (enrolledStudent.getId() == student.getId()) {
-                return false; // Already enrolled
-            }
-        }
-        
-        enrolledStudents.add(student);
-        return true;
+        // False if the student is already enrolled
+        return enrolledStudents.putIfAbsent(student.getId(), student) == null;
+    }
+    
+    // Add a student whose enrollment was loaded from the database.
+    // The stored roster is taken as-is, so capacity is not re-checked here.
+    void loadStudent(Student student) {
+        enrolledStudents.putIfAbsent(student.getId(), student);
     }
     
     // Remove student from course
     public boolean removeStudent(int studentId) {
-        return enrolledStudents.removeIf(student -> student.getId() == studentId);
+        return enrolledStudents.remove(studentId) != null;
     }
     
     // Get current enrollment count
@@ -101,7 +100,7 @@ public class Course {
     
     // Check if student is enrolled
     public boolean isStudentEnrolled(int studentId) {
-        return enrolledStudents.stream().anyMatch(student -> student.getId() == studentId);
+        return enrolledStudents.containsKey(studentId);
     }
     
     // Get course information
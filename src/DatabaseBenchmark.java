@@ -0,0 +1,466 @@
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simple throughput benchmark for SchoolDB
+ * Runs a mixed read/write load against a scratch database and prints operations per second
+ */
+public class DatabaseBenchmark {
+    private static final int SEED_STUDENTS = 2000;
+    private static final int READER_THREADS = 4;
+    private static final long RUN_MILLIS = 5000;
+    
+    private static final int INDEX_STUDENTS = 20000;
+    private static final int INDEX_TEACHERS = 200;
+    private static final int INDEX_COURSES = 2000;
+    private static final int ENROLLMENTS_PER_STUDENT = 5;
+    private static final int QUERY_ITERATIONS = 2000;
+    
+    private static final int EDIT_ROWS = 20;
+    private static final int EDIT_ROUNDS = 50;
+    
+    private static final int CACHE_STUDENTS = 20000;
+    private static final int CACHE_HOT_STUDENTS = 500;
+    private static final int CACHE_LOOKUPS = 50000;
+    
+    private static final int LOOKUP_STUDENTS = 50000;
+    private static final int LOOKUP_ITERATIONS = 2000;
+    private static final int LOOKUP_LIMIT = 20;
+    private static final String[] FIRST_NAMES = {"Ahmad", "Mohammed", "Omar", "Sara", "Lina", "Yousef",
+            "Khaled", "Noor", "Huda", "Ali", "Maryam", "Hassan", "أحمد", "محمد", "فاطمة", "عمر"};
+    private static final String[] LAST_NAMES = {"Ameen", "Haddad", "Khalil", "Nasser", "Saleh", "Mansour",
+            "Qasem", "Darwish", "Hamdan", "Jaber", "العلي", "الخطيب", "النجار", "الحسن"};
+    private static final String[] LOOKUP_PREFIXES = {"a", "ah", "sar", "omar k", "أح", "has man", "jab", "x"};
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== SchoolDB Mixed Read/Write Benchmark ===\n");
+        
+        // The original design: one shared connection with SQLite's default rollback journal
+        runBaselineLoad();
+        runMixedLoad(0);
+        runMixedLoad(READER_THREADS);
+        
+        runIndexComparison();
+        runTransactionComparison();
+        runCacheComparison();
+        runPrefixLookupComparison();
+    }
+    
+    // The calls made by the mixed load, so the pooled and baseline runs do the same work
+    private interface MixedWorkload {
+        void listStudents() throws SQLException;
+        
+        void lookupStudent(int id) throws SQLException;
+        
+        void updateStudent(int id, int gradeLevel) throws SQLException;
+    }
+    
+    private static void runMixedLoad(int poolReaders) throws Exception {
+        File dbFile = File.createTempFile("school-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        SchoolDB database = new SchoolDB(url, poolReaders);
+        
+        try {
+            for (int i = 1; i <= SEED_STUDENTS; i++) {
+                database.insertStudent(new Student(i, "Student " + i, 15 + i % 5, 9 + i % 4));
+            }
+            
+            runWorkload("Pool readers: " + poolReaders + " (WAL)", new MixedWorkload() {
+                @Override
+                public void listStudents() throws SQLException {
+                    database.getStudents();
+                }
+                
+                @Override
+                public void lookupStudent(int id) throws SQLException {
+                    database.getStudentById(id);
+                }
+                
+                @Override
+                public void updateStudent(int id, int gradeLevel) throws SQLException {
+                    database.updateStudent(new Student(id, "Student " + id, 16, gradeLevel));
+                }
+            });
+        } finally {
+            database.closeConnection();
+            deleteDatabaseFiles(dbFile);
+        }
+    }
+    
+    // The same load through one plain JDBC connection in journal_mode=DELETE, preparing each
+    // statement per call as SchoolDB did before the pool
+    private static void runBaselineLoad() throws Exception {
+        File dbFile = File.createTempFile("school-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        
+        try (Connection connection = DriverManager.getConnection(url)) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = DELETE");
+                stmt.execute("CREATE TABLE students (id INTEGER PRIMARY KEY, name TEXT NOT NULL, " +
+                        "age INTEGER NOT NULL, grade_level INTEGER NOT NULL)");
+            }
+            
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO students VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= SEED_STUDENTS; i++) {
+                    pstmt.setInt(1, i);
+                    pstmt.setString(2, "Student " + i);
+                    pstmt.setInt(3, 15 + i % 5);
+                    pstmt.setInt(4, 9 + i % 4);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+            
+            runWorkload("Single connection (rollback journal, original design)", new MixedWorkload() {
+                @Override
+                public void listStudents() throws SQLException {
+                    try (Statement stmt = connection.createStatement();
+                         ResultSet rs = stmt.executeQuery("SELECT * FROM students")) {
+                        while (rs.next()) {
+                            new Student(rs.getInt("id"), rs.getString("name"), rs.getInt("age"), rs.getInt("grade_level"));
+                        }
+                    }
+                }
+                
+                @Override
+                public void lookupStudent(int id) throws SQLException {
+                    try (PreparedStatement pstmt = connection.prepareStatement("SELECT * FROM students WHERE id = ?")) {
+                        pstmt.setInt(1, id);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            if (rs.next()) {
+                                new Student(rs.getInt("id"), rs.getString("name"), rs.getInt("age"), rs.getInt("grade_level"));
+                            }
+                        }
+                    }
+                }
+                
+                @Override
+                public void updateStudent(int id, int gradeLevel) throws SQLException {
+                    try (PreparedStatement pstmt = connection.prepareStatement(
+                            "UPDATE students SET name = ?, age = ?, grade_level = ? WHERE id = ?")) {
+                        pstmt.setString(1, "Student " + id);
+                        pstmt.setInt(2, 16);
+                        pstmt.setInt(3, gradeLevel);
+                        pstmt.setInt(4, id);
+                        pstmt.executeUpdate();
+                    }
+                }
+            });
+        } finally {
+            deleteDatabaseFiles(dbFile);
+        }
+    }
+    
+    // Run reader threads and one writer against the workload for RUN_MILLIS and print the rates
+    private static void runWorkload(String label, MixedWorkload workload) throws InterruptedException {
+        AtomicLong reads = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.currentTimeMillis() + RUN_MILLIS;
+        List<Thread> threads = new ArrayList<>();
+        
+        // Reader threads - roster listing and single lookups, as the front desks do
+        for (int t = 0; t < READER_THREADS; t++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < deadline) {
+                    try {
+                        if (random.nextInt(10) == 0) {
+                            workload.listStudents();
+                        } else {
+                            workload.lookupStudent(1 + random.nextInt(SEED_STUDENTS));
+                        }
+                        reads.incrementAndGet();
+                    } catch (SQLException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        
+        // Writer thread - enrollment-style updates
+        threads.add(new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.currentTimeMillis() < deadline) {
+                try {
+                    workload.updateStudent(1 + random.nextInt(SEED_STUDENTS), 9 + random.nextInt(4));
+                    writes.incrementAndGet();
+                } catch (SQLException e) {
+                    errors.incrementAndGet();
+                }
+            }
+        }));
+        
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        double seconds = RUN_MILLIS / 1000.0;
+        System.out.println(label);
+        System.out.printf("  reads/sec:  %.0f%n", reads.get() / seconds);
+        System.out.printf("  writes/sec: %.0f%n", writes.get() / seconds);
+        System.out.printf("  errors:     %d%n%n", errors.get());
+    }
+    
+    // Time the roster and per-teacher course queries with and without the migration indexes
+    private static void runIndexComparison() throws Exception {
+        System.out.println("=== Enrollment / Teacher Course Queries: Indexes ===\n");
+        
+        File dbFile = File.createTempFile("school-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        SchoolDB database = new SchoolDB(url, READER_THREADS);
+        
+        try {
+            List<Teacher> teachers = new ArrayList<>();
+            for (int i = 1; i <= INDEX_TEACHERS; i++) {
+                teachers.add(new Teacher(i, "Teacher " + i, 30 + i % 30, "Subject " + i % 12));
+            }
+            database.insertTeachers(teachers);
+            
+            List<Course> courses = new ArrayList<>();
+            for (int i = 1; i <= INDEX_COURSES; i++) {
+                courses.add(new Course(i, "Course " + i, teachers.get(i % INDEX_TEACHERS), Integer.MAX_VALUE));
+            }
+            database.insertCourses(courses);
+            
+            List<Student> students = new ArrayList<>();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 1; i <= INDEX_STUDENTS; i++) {
+                Student student = new Student(i, "Student " + i, 15 + i % 5, 9 + i % 4);
+                students.add(student);
+                for (int e = 0; e < ENROLLMENTS_PER_STUDENT; e++) {
+                    courses.get(random.nextInt(INDEX_COURSES)).addStudent(student);
+                }
+            }
+            database.insertStudents(students);
+            database.insertEnrollments(courses);
+            
+            double[] indexed = timeQueries(database);
+            
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement stmt = connection.createStatement()) {
+                stmt.execute("DROP INDEX idx_enrollments_course_id");
+                stmt.execute("DROP INDEX idx_courses_teacher_id");
+            }
+            double[] unindexed = timeQueries(database);
+            
+            System.out.printf("%d students, %d courses, %d teachers, %d enrollments/student%n",
+                    INDEX_STUDENTS, INDEX_COURSES, INDEX_TEACHERS, ENROLLMENTS_PER_STUDENT);
+            System.out.printf("  getCourseWithRoster:  %8.1f us without index, %8.1f us with index%n",
+                    unindexed[0], indexed[0]);
+            System.out.printf("  getCoursesByTeacher:  %8.1f us without index, %8.1f us with index%n%n",
+                    unindexed[1], indexed[1]);
+        } finally {
+            database.closeConnection();
+            deleteDatabaseFiles(dbFile);
+        }
+    }
+    
+    // Time a multi-row edit (EDIT_ROWS student updates) in autocommit and in one transaction
+    private static void runTransactionComparison() throws Exception {
+        System.out.println("=== Multi-Row Edits: Autocommit vs Transaction ===\n");
+        
+        File dbFile = File.createTempFile("school-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        SchoolDB database = new SchoolDB(url, READER_THREADS);
+        
+        try {
+            List<Student> students = new ArrayList<>();
+            for (int i = 1; i <= EDIT_ROWS; i++) {
+                students.add(new Student(i, "Student " + i, 16, 10));
+            }
+            database.insertStudents(students);
+            
+            long autoCommitNanos = 0;
+            long transactionNanos = 0;
+            for (int round = 0; round < EDIT_ROUNDS; round++) {
+                int grade = 9 + round % 4;
+                
+                long start = System.nanoTime();
+                for (Student student : students) {
+                    database.updateStudent(new Student(student.getId(), student.getName(), 16, grade));
+                }
+                autoCommitNanos += System.nanoTime() - start;
+                
+                start = System.nanoTime();
+                database.inTransaction(db -> {
+                    for (Student student : students) {
+                        db.updateStudent(new Student(student.getId(), student.getName(), 17, grade));
+                    }
+                    return null;
+                });
+                transactionNanos += System.nanoTime() - start;
+            }
+            
+            System.out.printf("%d-row edit, average of %d rounds%n", EDIT_ROWS, EDIT_ROUNDS);
+            System.out.printf("  autocommit:  %8.1f us%n", autoCommitNanos / 1000.0 / EDIT_ROUNDS);
+            System.out.printf("  transaction: %8.1f us%n%n", transactionNanos / 1000.0 / EDIT_ROUNDS);
+        } finally {
+            database.closeConnection();
+            deleteDatabaseFiles(dbFile);
+        }
+    }
+    
+    // Time getStudentById with the entity caches off and on. Most lookups go to a small set of
+    // students, as when a desk keeps reopening the same records; the rest are spread over all of them.
+    private static void runCacheComparison() throws Exception {
+        System.out.println("=== Student Lookups by ID: Entity Cache Off vs On ===\n");
+        
+        File dbFile = File.createTempFile("school-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        SchoolDB database = new SchoolDB(url, READER_THREADS);
+        
+        try {
+            List<Student> students = new ArrayList<>();
+            for (int i = 1; i <= CACHE_STUDENTS; i++) {
+                students.add(new Student(i, "Student " + i, 15 + i % 5, 9 + i % 4));
+            }
+            database.insertStudents(students);
+            
+            int[] ids = new int[CACHE_LOOKUPS];
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = 1 + random.nextInt(random.nextInt(10) < 9 ? CACHE_HOT_STUDENTS : CACHE_STUDENTS);
+            }
+            
+            database.setEntityCacheEnabled(false);
+            timeLookups(database, ids);
+            double uncached = timeLookups(database, ids);
+            
+            database.setEntityCacheEnabled(true);
+            timeLookups(database, ids);
+            database.getStudentCache().resetStats();
+            double cached = timeLookups(database, ids);
+            
+            System.out.printf("%d students, %d lookups, 90%% of them among %d students%n",
+                    CACHE_STUDENTS, CACHE_LOOKUPS, CACHE_HOT_STUDENTS);
+            System.out.printf("  cache off: %8.2f us/lookup%n", uncached);
+            System.out.printf("  cache on:  %8.2f us/lookup (hit rate %.0f%%)%n%n",
+                    cached, database.getStudentCache().getHitRate() * 100);
+        } finally {
+            database.closeConnection();
+            deleteDatabaseFiles(dbFile);
+        }
+    }
+    
+    private static double timeLookups(SchoolDB database, int[] ids) throws SQLException {
+        long start = System.nanoTime();
+        for (int id : ids) {
+            database.getStudentById(id);
+        }
+        return (System.nanoTime() - start) / 1000.0 / ids.length;
+    }
+    
+    // Autocomplete lookups: full-text index in SQLite vs the in-memory prefix index
+    private static void runPrefixLookupComparison() throws Exception {
+        System.out.println("=== Autocomplete Lookups: FTS vs In-Memory Prefix Index ===\n");
+        
+        File dbFile = File.createTempFile("school-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        SchoolDB database = new SchoolDB(url, READER_THREADS);
+        
+        try {
+            List<Student> students = new ArrayList<>();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 1; i <= LOOKUP_STUDENTS; i++) {
+                String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                        + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                        + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                students.add(new Student(i, name, 15 + i % 5, 9 + i % 4));
+            }
+            database.insertStudents(students);
+            
+            double[] fts = timeSuggestions(database);
+            
+            database.loadNameIndexes();
+            long start = System.nanoTime();
+            while (!database.areNameIndexesReady()) {
+                Thread.sleep(5);
+            }
+            double loadMillis = (System.nanoTime() - start) / 1_000_000.0;
+            double[] memory = timeSuggestions(database);
+            
+            // The index on its own, without loading the matching rows
+            PrefixIndex index = new PrefixIndex("student names");
+            int[] ids = new int[students.size()];
+            String[] names = new String[students.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = students.get(i).getId();
+                names[i] = students.get(i).getName();
+            }
+            index.load(ids, names);
+            
+            System.out.printf("%d students, top %d, average of %d lookups per prefix%n",
+                    LOOKUP_STUDENTS, LOOKUP_LIMIT, LOOKUP_ITERATIONS);
+            for (int p = 0; p < LOOKUP_PREFIXES.length; p++) {
+                start = System.nanoTime();
+                for (int i = 0; i < LOOKUP_ITERATIONS; i++) {
+                    index.search(LOOKUP_PREFIXES[p], LOOKUP_LIMIT);
+                }
+                double searchOnly = (System.nanoTime() - start) / 1000.0 / LOOKUP_ITERATIONS;
+                System.out.printf("  %-8s  FTS %8.1f us, prefix index %8.1f us (search alone %6.1f us)%n",
+                        "'" + LOOKUP_PREFIXES[p] + "'", fts[p], memory[p], searchOnly);
+            }
+            System.out.printf("  index loaded in %.0f ms%n", loadMillis);
+            System.out.printf("  %s%n%n", index);
+        } finally {
+            database.closeConnection();
+            deleteDatabaseFiles(dbFile);
+        }
+    }
+    
+    // Average microseconds per suggestStudents call, one entry per lookup prefix
+    private static double[] timeSuggestions(SchoolDB database) throws SQLException {
+        double[] micros = new double[LOOKUP_PREFIXES.length];
+        for (int p = 0; p < LOOKUP_PREFIXES.length; p++) {
+            int iterations = LOOKUP_ITERATIONS / 10;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                database.suggestStudents(LOOKUP_PREFIXES[p], LOOKUP_LIMIT);
+            }
+            micros[p] = (System.nanoTime() - start) / 1000.0 / iterations;
+        }
+        return micros;
+    }
+    
+    // Average microseconds per call for {getCourseWithRoster, getCoursesByTeacher}
+    private static double[] timeQueries(SchoolDB database) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERY_ITERATIONS; i++) {
+            database.getCourseWithRoster(1 + random.nextInt(INDEX_COURSES));
+        }
+        double roster = (System.nanoTime() - start) / 1000.0 / QUERY_ITERATIONS;
+        
+        start = System.nanoTime();
+        for (int i = 0; i < QUERY_ITERATIONS; i++) {
+            database.getCoursesByTeacher(1 + random.nextInt(INDEX_TEACHERS));
+        }
+        double byTeacher = (System.nanoTime() - start) / 1000.0 / QUERY_ITERATIONS;
+        
+        return new double[] {roster, byTeacher};
+    }
+    
+    private static void deleteDatabaseFiles(File dbFile) {
+        dbFile.delete();
+        new File(dbFile.getPath() + "-journal").delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+}
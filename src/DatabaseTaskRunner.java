@@ -0,0 +1,287 @@
+import javax.swing.SwingUtilities;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs database work on background threads and hands the results back to the Swing event thread
+ * Work submitted under a key supersedes earlier work with the same key: a superseded task that has
+ * not started is cancelled, and one that is already running finishes but its result is dropped.
+ * Progressive tasks deliver results in chunks and can stop their query as soon as they are superseded.
+ * Writes run one at a time on their own thread, in the order they were submitted.
+ */
+public class DatabaseTaskRunner {
+    private static final int WORKER_THREADS = 2;
+    
+    // Progressive results are handed over when this many are buffered or this much time has passed
+    private static final int CHUNK_SIZE = 100;
+    private static final long CHUNK_NANOS = 50_000_000L;
+    
+    private final ExecutorService executor;
+    private final ExecutorService writeExecutor;
+    private final boolean synchronous;
+    
+    // Latest task per key; only touched on the event thread
+    private final Map<String, Submission> latest = new HashMap<>();
+    private int pending;
+    private IntConsumer activityListener = count -> { };
+    
+    // Database work run off the event thread
+    public interface Task<T> {
+        T run() throws SQLException;
+    }
+    
+    // Database work that produces results one at a time
+    public interface ProgressiveTask<T> {
+        void run(Sink<T> sink) throws SQLException;
+    }
+    
+    // Receives the results of a progressive task
+    public interface Sink<T> {
+        // Returns false once the task has been superseded and should stop
+        boolean add(T item);
+    }
+    
+    private static class Submission {
+        Future<?> future;
+        // Set by whichever comes first: a worker starting the task, or a newer task superseding it
+        final AtomicBoolean claimed = new AtomicBoolean();
+        volatile boolean superseded;
+    }
+    
+    // Constructor - synchronous runs every task inline on the calling thread,
+    // which is how the application behaved before and is kept for comparison
+    public DatabaseTaskRunner(boolean synchronous) {
+        this.synchronous = synchronous;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = synchronous ? null : Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "db-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writeExecutor = synchronous ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Called on the event thread with the number of unfinished tasks whenever it changes
+    public void setActivityListener(IntConsumer listener) {
+        this.activityListener = listener;
+    }
+    
+    // Run a task that cannot be superseded. Must be called on the event thread;
+    // onSuccess and onError are also called on the event thread.
+    public <T> void submit(Task<T> task, Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        submit(null, task, onSuccess, onError);
+    }
+    
+    // Run a task, superseding any earlier task submitted under the same key
+    public <T> void submit(String key, Task<T> task, Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        submit(executor, key, task, onSuccess, onError);
+    }
+    
+    // Run a task that changes data. Writes run one at a time in submission order, so an add
+    // followed by a delete of the same row can never be applied the other way round.
+    public <T> void submitWrite(Task<T> task, Consumer<T> onSuccess, Consumer<SQLException> onError) {
+        submit(writeExecutor, null, task, onSuccess, onError);
+    }
+    
+    private <T> void submit(ExecutorService target, String key, Task<T> task, Consumer<T> onSuccess,
+                            Consumer<SQLException> onError) {
+        if (synchronous) {
+            T result;
+            try {
+                result = task.run();
+            } catch (SQLException e) {
+                onError.accept(e);
+                return;
+            }
+            onSuccess.accept(result);
+            return;
+        }
+        
+        schedule(target, key, submission -> {
+            T result = null;
+            SQLException error = null;
+            try {
+                result = task.run();
+            } catch (SQLException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = new SQLException("Unexpected error: " + e, e);
+            }
+            
+            T value = result;
+            SQLException failure = error;
+            SwingUtilities.invokeLater(() -> finish(key, submission, () -> {
+                if (failure != null) {
+                    onError.accept(failure);
+                } else {
+                    onSuccess.accept(value);
+                }
+            }));
+        }, onError);
+    }
+    
+    // Run a progressive task under a key. onChunk receives results in the order the task
+    // produced them, then onDone or onError is called once. Nothing more is delivered once
+    // a newer task with the same key is submitted, and the task is told to stop.
+    public <T> void submitProgressive(String key, ProgressiveTask<T> task, Consumer<List<T>> onChunk,
+                                      Runnable onDone, Consumer<SQLException> onError) {
+        Objects.requireNonNull(key, "Progressive tasks need a key");
+        if (synchronous) {
+            List<T> results = new ArrayList<>();
+            try {
+                task.run(results::add);
+            } catch (SQLException e) {
+                onError.accept(e);
+                return;
+            }
+            onChunk.accept(results);
+            onDone.run();
+            return;
+        }
+        
+        schedule(executor, key, submission -> {
+            ChunkSink<T> sink = new ChunkSink<>(key, submission, onChunk);
+            SQLException error = null;
+            try {
+                task.run(sink);
+            } catch (SQLException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = new SQLException("Unexpected error: " + e, e);
+            }
+            sink.flush();
+            
+            SQLException failure = error;
+            SwingUtilities.invokeLater(() -> finish(key, submission, () -> {
+                if (failure != null) {
+                    onError.accept(failure);
+                } else {
+                    onDone.run();
+                }
+            }));
+        }, onError);
+    }
+    
+    // Buffers progressive results on the worker and hands them to the event thread in chunks
+    private class ChunkSink<T> implements Sink<T> {
+        private final String key;
+        private final Submission submission;
+        private final Consumer<List<T>> onChunk;
+        private List<T> buffer = new ArrayList<>();
+        private long lastFlush = System.nanoTime();
+        
+        ChunkSink(String key, Submission submission, Consumer<List<T>> onChunk) {
+            this.key = key;
+            this.submission = submission;
+            this.onChunk = onChunk;
+        }
+        
+        @Override
+        public boolean add(T item) {
+            if (submission.superseded) {
+                return false;
+            }
+            buffer.add(item);
+            if (buffer.size() >= CHUNK_SIZE || System.nanoTime() - lastFlush >= CHUNK_NANOS) {
+                flush();
+            }
+            return true;
+        }
+        
+        void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            List<T> chunk = buffer;
+            buffer = new ArrayList<>();
+            lastFlush = System.nanoTime();
+            SwingUtilities.invokeLater(() -> {
+                if (latest.get(key) == submission) {
+                    onChunk.accept(chunk);
+                }
+            });
+        }
+    }
+    
+    // Cancel the task running under a key, if any, as if it had been superseded
+    public void cancel(String key) {
+        Submission previous = latest.remove(key);
+        if (previous != null) {
+            previous.superseded = true;
+            // A task cancelled before it started never reaches finish(), so release it here
+            if (previous.claimed.compareAndSet(false, true)) {
+                previous.future.cancel(false);
+                setPending(pending - 1);
+            }
+        }
+    }
+    
+    private void schedule(ExecutorService target, String key, Consumer<Submission> body, Consumer<SQLException> onError) {
+        if (key != null) {
+            cancel(key);
+        }
+        
+        Submission submission = new Submission();
+        setPending(pending + 1);
+        try {
+            submission.future = target.submit(() -> {
+                if (submission.claimed.compareAndSet(false, true)) {
+                    body.accept(submission);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            setPending(pending - 1);
+            onError.accept(new SQLException("Database tasks have been shut down", e));
+            return;
+        }
+        
+        if (key != null) {
+            latest.put(key, submission);
+        }
+    }
+    
+    // Deliver the outcome on the event thread, unless a newer task with the same key replaced it
+    private void finish(String key, Submission submission, Runnable delivery) {
+        setPending(pending - 1);
+        if (key != null) {
+            if (latest.get(key) != submission) {
+                return; // superseded while running
+            }
+            latest.remove(key);
+        }
+        delivery.run();
+    }
+    
+    private void setPending(int count) {
+        pending = count;
+        activityListener.accept(count);
+    }
+    
+    public boolean isSynchronous() {
+        return synchronous;
+    }
+    
+    // Stop accepting work; tasks already running are allowed to finish
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            writeExecutor.shutdown();
+        }
+    }
+}
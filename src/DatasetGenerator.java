@@ -0,0 +1,329 @@
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic school for load testing
+ * Generates students, teachers, courses and enrollments that look like this school's data at any
+ * scale: bilingual three-part names, students in grade-level bands that mostly take their own
+ * grade's courses, and popular courses that fill up while the rest keep seats free. The same
+ * seed and sizes always produce the same rows. Rows go through the batch inserts, which commit a
+ * chunk of students at a time; open the database with DurabilityProfile.BULK_LOAD for the fastest load.
+ */
+public class DatasetGenerator {
+    public static final long DEFAULT_SEED = 20240901L;
+    
+    // Default shape for a given number of students
+    private static final int STUDENTS_PER_TEACHER = 500;
+    private static final int STUDENTS_PER_COURSE = 250;
+    
+    private static final int FIRST_GRADE = 9;
+    private static final int GRADE_COUNT = 4;
+    
+    // Each student takes 3 to 6 courses, nearly all from their own grade band
+    private static final int MIN_COURSES_PER_STUDENT = 3;
+    private static final int MAX_COURSES_PER_STUDENT = 6;
+    private static final double OTHER_GRADE_RATE = 0.1;
+    
+    // Course popularity falls off as 1 / rank^ZIPF_EXPONENT within a grade band
+    private static final double ZIPF_EXPONENT = 1.0;
+    // Seats are the expected demand scaled by a random factor, so popular courses still fill up
+    private static final double MIN_SEAT_FACTOR = 0.8;
+    private static final double MAX_SEAT_FACTOR = 2.0;
+    private static final int MIN_CAPACITY = 15;
+    private static final int MAX_PICK_ATTEMPTS = 20;
+    
+    private static final int CHUNK_SIZE = 50000;
+    private static final double ARABIC_SCRIPT_RATE = 0.6;
+    
+    private static final String[] MALE_NAMES = {"Ahmad", "Mohammed", "Omar", "Ali", "Yousef", "Khaled", "Hassan",
+            "Ibrahim", "Mahmoud", "Tariq", "Zaid", "Hamza", "Saleh", "Faisal", "Jehad", "Adnan"};
+    private static final String[] MALE_NAMES_AR = {"أحمد", "محمد", "عمر", "علي", "يوسف", "خالد", "حسن",
+            "إبراهيم", "محمود", "طارق", "زيد", "حمزة", "صالح", "فيصل", "جهاد", "عدنان"};
+    private static final String[] FEMALE_NAMES = {"Sara", "Fatima", "Maryam", "Noor", "Huda", "Lina", "Aisha",
+            "Rana", "Dana", "Reem", "Layla", "Salma", "Hala", "Ruba", "Asma", "Yasmin"};
+    private static final String[] FEMALE_NAMES_AR = {"سارة", "فاطمة", "مريم", "نور", "هدى", "لينا", "عائشة",
+            "رنا", "دانا", "ريم", "ليلى", "سلمى", "هالة", "ربى", "أسماء", "ياسمين"};
+    private static final String[] FAMILY_NAMES = {"Ameen", "Haddad", "Khalil", "Nasser", "Saleh", "Mansour",
+            "Qasem", "Darwish", "Hamdan", "Jaber", "Al-Ali", "Al-Khatib", "Al-Najjar", "Al-Hassan", "Odeh", "Shami"};
+    private static final String[] FAMILY_NAMES_AR = {"أمين", "حداد", "خليل", "ناصر", "صالح", "منصور",
+            "قاسم", "درويش", "حمدان", "جابر", "العلي", "الخطيب", "النجار", "الحسن", "عودة", "الشامي"};
+    private static final String[] SUBJECTS = {"Mathematics", "Physics", "Chemistry", "Biology", "Arabic",
+            "English", "History", "Geography", "Computer Science", "Islamic Studies", "Art", "Physical Education"};
+    private static final String[] SUBJECTS_AR = {"الرياضيات", "الفيزياء", "الكيمياء", "الأحياء", "اللغة العربية",
+            "اللغة الإنجليزية", "التاريخ", "الجغرافيا", "علوم الحاسوب", "التربية الإسلامية", "الفنون", "التربية الرياضية"};
+    
+    private final long seed;
+    private final int studentCount;
+    private final int teacherCount;
+    private final int courseCount;
+    
+    // What was generated and how fast it was written
+    public static class Report {
+        private final int students;
+        private final int teachers;
+        private final int courses;
+        private final int enrollments;
+        private final int failures;
+        private final long elapsedMillis;
+        
+        Report(int students, int teachers, int courses, int enrollments, int failures, long elapsedMillis) {
+            this.students = students;
+            this.teachers = teachers;
+            this.courses = courses;
+            this.enrollments = enrollments;
+            this.failures = failures;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        public int getStudents() {
+            return students;
+        }
+        
+        public int getTeachers() {
+            return teachers;
+        }
+        
+        public int getCourses() {
+            return courses;
+        }
+        
+        public int getEnrollments() {
+            return enrollments;
+        }
+        
+        public int getFailures() {
+            return failures;
+        }
+        
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        
+        public long getTotalRows() {
+            return (long) students + teachers + courses + enrollments;
+        }
+        
+        public double getRowsPerSecond() {
+            return getTotalRows() * 1000.0 / Math.max(1, elapsedMillis);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d students, %d teachers, %d courses, %d enrollments " +
+                    "(%d rejected) in %.1f s - %.0f rows/sec", students, teachers, courses, enrollments,
+                    failures, elapsedMillis / 1000.0, getRowsPerSecond());
+        }
+    }
+    
+    // Constructor - teachers and courses scale with the number of students
+    public DatasetGenerator(int studentCount, long seed) {
+        this(studentCount, Math.max(GRADE_COUNT * 2, studentCount / STUDENTS_PER_TEACHER),
+                Math.max(GRADE_COUNT * SUBJECTS.length, studentCount / STUDENTS_PER_COURSE), seed);
+    }
+    
+    // Constructor with explicit sizes
+    public DatasetGenerator(int studentCount, int teacherCount, int courseCount, long seed) {
+        if (studentCount < 0 || teacherCount <= 0 || courseCount <= 0) {
+            throw new IllegalArgumentException("Dataset needs at least one teacher and one course");
+        }
+        this.studentCount = studentCount;
+        this.teacherCount = teacherCount;
+        this.courseCount = courseCount;
+        this.seed = seed;
+    }
+    
+    // Write the dataset into an empty database. IDs start at 1 in every table.
+    public Report generate(SchoolDB database) throws SQLException {
+        long start = System.currentTimeMillis();
+        Random random = new Random(seed);
+        
+        List<Teacher> teachers = createTeachers(random);
+        List<Course> courses = createCourses(teachers, random);
+        int failures = database.insertTeachers(teachers).getFailedCount()
+                + database.insertCourses(courses).getFailedCount();
+        
+        // Courses of each grade band, most popular first, with the cumulative weights to pick them
+        int[][] bandCourses = new int[GRADE_COUNT][];
+        double[][] bandWeights = new double[GRADE_COUNT][];
+        int[] seatsLeft = new int[courseCount + 1];
+        for (Course course : courses) {
+            seatsLeft[course.getCourseId()] = course.getMaxCapacity();
+        }
+        for (int band = 0; band < GRADE_COUNT; band++) {
+            bandCourses[band] = coursesInBand(band);
+            bandWeights[band] = zipfCumulative(bandCourses[band].length);
+        }
+        
+        // Students and their enrollments a chunk at a time, so millions never sit in memory at once.
+        // Each batch insert commits on its own: wrapped in an outer transaction, its savepoints would
+        // sit inside another savepoint, and SQLite's in-memory statement journal (temp_store MEMORY
+        // in the faster profiles) then slows every later chunk down.
+        int enrollments = 0;
+        for (int first = 1; first <= studentCount; first += CHUNK_SIZE) {
+            int last = Math.min(studentCount, first + CHUNK_SIZE - 1);
+            List<Student> students = new ArrayList<>(last - first + 1);
+            Map<Integer, Course> rosters = new LinkedHashMap<>();
+            
+            for (int id = first; id <= last; id++) {
+                int band = random.nextInt(GRADE_COUNT);
+                Student student = new Student(id, personName(random, random.nextBoolean()),
+                        14 + band + random.nextInt(2), FIRST_GRADE + band);
+                students.add(student);
+                
+                int wanted = MIN_COURSES_PER_STUDENT + random.nextInt(MAX_COURSES_PER_STUDENT - MIN_COURSES_PER_STUDENT + 1);
+                for (int i = 0; i < wanted; i++) {
+                    int courseBand = random.nextDouble() < OTHER_GRADE_RATE ? random.nextInt(GRADE_COUNT) : band;
+                    int courseId = pickCourse(bandCourses[courseBand], bandWeights[courseBand], seatsLeft, student,
+                            rosters, random);
+                    if (courseId > 0) {
+                        seatsLeft[courseId]--;
+                        rosters.computeIfAbsent(courseId, c -> new Course(c, "", Integer.MAX_VALUE)).addStudent(student);
+                    }
+                }
+            }
+            
+            failures += database.insertStudents(students).getFailedCount();
+            BatchResult enrolled = database.insertEnrollments(rosters.values());
+            enrollments += enrolled.getInserted();
+            failures += enrolled.getFailedCount();
+        }
+        
+        return new Report(studentCount, teacherCount, courseCount, enrollments, failures,
+                System.currentTimeMillis() - start);
+    }
+    
+    private List<Teacher> createTeachers(Random random) {
+        List<Teacher> teachers = new ArrayList<>(teacherCount);
+        for (int id = 1; id <= teacherCount; id++) {
+            boolean arabic = random.nextDouble() < ARABIC_SCRIPT_RATE;
+            int subject = (id - 1) % SUBJECTS.length;
+            teachers.add(new Teacher(id, personName(random, random.nextBoolean()), 25 + random.nextInt(36),
+                    arabic ? SUBJECTS_AR[subject] : SUBJECTS[subject]));
+        }
+        return teachers;
+    }
+    
+    // Courses cycle through grade bands and subjects; each is taught by a teacher of its subject
+    private List<Course> createCourses(List<Teacher> teachers, Random random) {
+        int expectedEnrollments = studentCount * (MIN_COURSES_PER_STUDENT + MAX_COURSES_PER_STUDENT) / 2;
+        List<Course> courses = new ArrayList<>(courseCount);
+        int[] sections = new int[GRADE_COUNT * SUBJECTS.length];
+        
+        for (int band = 0; band < GRADE_COUNT; band++) {
+            int[] ids = coursesInBand(band);
+            double[] cumulative = zipfCumulative(ids.length);
+            double bandDemand = (double) expectedEnrollments / GRADE_COUNT;
+            
+            for (int rank = 0; rank < ids.length; rank++) {
+                int id = ids[rank];
+                int subject = (id - 1) / GRADE_COUNT % SUBJECTS.length;
+                int section = ++sections[band * SUBJECTS.length + subject];
+                double share = cumulative[rank] - (rank == 0 ? 0 : cumulative[rank - 1]);
+                double factor = MIN_SEAT_FACTOR + random.nextDouble() * (MAX_SEAT_FACTOR - MIN_SEAT_FACTOR);
+                int capacity = Math.max(MIN_CAPACITY, (int) Math.round(bandDemand * share * factor));
+                
+                boolean arabic = random.nextDouble() < ARABIC_SCRIPT_RATE;
+                String title = (arabic ? SUBJECTS_AR[subject] : SUBJECTS[subject]) + " " + (FIRST_GRADE + band)
+                        + (section > 1 ? " - " + section : "");
+                courses.add(new Course(id, title, teacherFor(teachers, subject, random), capacity));
+            }
+        }
+        courses.sort((a, b) -> Integer.compare(a.getCourseId(), b.getCourseId()));
+        return courses;
+    }
+    
+    private Teacher teacherFor(List<Teacher> teachers, int subject, Random random) {
+        // Teachers with this subject have IDs subject + 1, subject + 1 + SUBJECTS.length, ...
+        int available = (teacherCount - subject + SUBJECTS.length - 1) / SUBJECTS.length;
+        if (available <= 0) {
+            return teachers.get(random.nextInt(teacherCount));
+        }
+        return teachers.get(subject + SUBJECTS.length * random.nextInt(available));
+    }
+    
+    // Course IDs of a grade band (course IDs cycle through the bands), in popularity order
+    private int[] coursesInBand(int band) {
+        int[] ids = new int[(courseCount - band + GRADE_COUNT - 1) / GRADE_COUNT];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = band + 1 + i * GRADE_COUNT;
+        }
+        // Popularity must not follow the ID order, or the first subject would always be the favourite
+        shuffle(ids, new Random(seed + band));
+        return ids;
+    }
+    
+    // Cumulative Zipf weights for n ranks, normalized to end at 1
+    private static double[] zipfCumulative(int n) {
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= total;
+        }
+        return cumulative;
+    }
+    
+    // A course with a free seat that the student does not take yet, or 0 after too many tries
+    private static int pickCourse(int[] ids, double[] cumulative, int[] seatsLeft, Student student,
+                                  Map<Integer, Course> rosters, Random random) {
+        for (int attempt = 0; attempt < MAX_PICK_ATTEMPTS; attempt++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            int id = ids[Math.min(ids.length - 1, index >= 0 ? index : -index - 1)];
+            Course roster = rosters.get(id);
+            if (seatsLeft[id] > 0 && (roster == null || !roster.isStudentEnrolled(student.getId()))) {
+                return id;
+            }
+        }
+        return 0;
+    }
+    
+    // First name, father's name and family name, in Arabic or Latin script
+    private static String personName(Random random, boolean female) {
+        boolean arabic = random.nextDouble() < ARABIC_SCRIPT_RATE;
+        String[] firstNames = female ? (arabic ? FEMALE_NAMES_AR : FEMALE_NAMES) : (arabic ? MALE_NAMES_AR : MALE_NAMES);
+        String[] fatherNames = arabic ? MALE_NAMES_AR : MALE_NAMES;
+        String[] familyNames = arabic ? FAMILY_NAMES_AR : FAMILY_NAMES;
+        return firstNames[random.nextInt(firstNames.length)] + " " + fatherNames[random.nextInt(fatherNames.length)]
+                + " " + familyNames[random.nextInt(familyNames.length)];
+    }
+    
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+    
+    // Usage: DatasetGenerator [students] [seed] [database file]
+    // Fills a new database file (school.db by default) with BULK_LOAD durability.
+    public static void main(String[] args) throws SQLException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        String path = args.length > 2 ? args[2] : "school.db";
+        
+        if (new File(path).exists()) {
+            System.err.println(path + " already exists; generate into a new file");
+            return;
+        }
+        
+        DatasetGenerator generator = new DatasetGenerator(students, seed);
+        SchoolDB database = new SchoolDB("jdbc:sqlite:" + path, 0, DurabilityProfile.BULK_LOAD);
+        try {
+            System.out.println(generator.generate(database));
+        } finally {
+            database.closeConnection();
+        }
+    }
+}
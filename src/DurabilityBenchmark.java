@@ -0,0 +1,101 @@
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the SQLite durability profiles against a copy of school.db
+ * Reports single-row inserts/sec (one commit each), bulk inserts/sec and query latency per profile.
+ * Usage: java DurabilityBenchmark [path/to/school.db]
+ */
+public class DurabilityBenchmark {
+    private static final String DEFAULT_DB = "school.db";
+    private static final int SINGLE_INSERTS = 500;
+    private static final int BULK_INSERTS = 20000;
+    private static final int QUERY_ITERATIONS = 2000;
+    
+    // Benchmark rows get IDs above anything a real school.db would hold
+    private static final int FIRST_BENCH_ID = 1_000_000;
+    
+    public static void main(String[] args) throws Exception {
+        String source = args.length > 0 ? args[0] : DEFAULT_DB;
+        File sourceFile = new File(source);
+        if (!sourceFile.exists()) {
+            // No existing database - start from the empty schema
+            new SchoolDB("jdbc:sqlite:" + sourceFile.getPath(), 0).closeConnection();
+        }
+        
+        System.out.println("=== SchoolDB Durability Profiles (" + sourceFile.getPath() + ") ===\n");
+        for (DurabilityProfile profile : DurabilityProfile.values()) {
+            runProfile(sourceFile, profile);
+        }
+    }
+    
+    private static void runProfile(File sourceFile, DurabilityProfile profile) throws Exception {
+        File copy = File.createTempFile("school-durability", ".db");
+        copyDatabase(sourceFile, copy);
+        SchoolDB database = new SchoolDB("jdbc:sqlite:" + copy.getAbsolutePath(), 4, profile);
+        database.setEntityCacheEnabled(false); // measure the database, not the cache
+        
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < SINGLE_INSERTS; i++) {
+                int id = FIRST_BENCH_ID + i;
+                database.insertStudent(new Student(id, "Benchmark Student " + id, 15 + i % 5, 9 + i % 4));
+            }
+            double singleSeconds = (System.nanoTime() - start) / 1e9;
+            
+            List<Student> students = new ArrayList<>();
+            for (int i = 0; i < BULK_INSERTS; i++) {
+                int id = FIRST_BENCH_ID + SINGLE_INSERTS + i;
+                students.add(new Student(id, "Benchmark Student " + id, 15 + i % 5, 9 + i % 4));
+            }
+            start = System.nanoTime();
+            database.insertStudents(students);
+            double bulkSeconds = (System.nanoTime() - start) / 1e9;
+            
+            int maxId = FIRST_BENCH_ID + SINGLE_INSERTS + BULK_INSERTS;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            start = System.nanoTime();
+            for (int i = 0; i < QUERY_ITERATIONS; i++) {
+                database.getStudentById(FIRST_BENCH_ID + random.nextInt(maxId - FIRST_BENCH_ID));
+            }
+            double lookupMicros = (System.nanoTime() - start) / 1000.0 / QUERY_ITERATIONS;
+            
+            start = System.nanoTime();
+            for (int i = 0; i < QUERY_ITERATIONS / 10; i++) {
+                database.searchStudentsByName("Student " + (1 + random.nextInt(99)));
+            }
+            double searchMicros = (System.nanoTime() - start) / 1000.0 / (QUERY_ITERATIONS / 10);
+            
+            System.out.println(profile);
+            System.out.printf("  single inserts/sec: %8.0f%n", SINGLE_INSERTS / singleSeconds);
+            System.out.printf("  bulk inserts/sec:   %8.0f%n", BULK_INSERTS / bulkSeconds);
+            System.out.printf("  getStudentById:     %8.1f us%n", lookupMicros);
+            System.out.printf("  searchStudents:     %8.1f us%n%n", searchMicros);
+        } finally {
+            database.closeConnection();
+            deleteDatabaseFiles(copy);
+        }
+    }
+    
+    // Consistent copy of the source database, including anything still in its WAL
+    private static void copyDatabase(File source, File target) throws SQLException {
+        target.delete();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + source.getPath());
+             PreparedStatement pstmt = connection.prepareStatement("VACUUM INTO ?")) {
+            pstmt.setString(1, target.getAbsolutePath());
+            pstmt.execute();
+        }
+    }
+    
+    private static void deleteDatabaseFiles(File dbFile) {
+        dbFile.delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+}
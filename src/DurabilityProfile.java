@@ -0,0 +1,74 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Named SQLite durability/performance settings applied to every pooled connection
+ * All profiles keep WAL mode, which the connection pool needs so readers can run next to the writer.
+ */
+public enum DurabilityProfile {
+    // Every commit is synced to disk before it returns
+    SAFE("FULL", -2000, 0, "DEFAULT"),
+    
+    // A power loss may drop the last commits but never corrupts the database
+    BALANCED("NORMAL", -16384, 64L * 1024 * 1024, "MEMORY"),
+    
+    // No syncing at all - only for loading data that can be regenerated if the machine crashes
+    BULK_LOAD("OFF", -65536, 256L * 1024 * 1024, "MEMORY");
+    
+    // Config file read by the default SchoolDB constructor, and the key holding the profile name
+    public static final String CONFIG_FILE = "school.properties";
+    public static final String CONFIG_KEY = "db.profile";
+    
+    private final String synchronous;
+    private final int cacheSizeKib;
+    private final long mmapSizeBytes;
+    private final String tempStore;
+    
+    DurabilityProfile(String synchronous, int cacheSizeKib, long mmapSizeBytes, String tempStore) {
+        this.synchronous = synchronous;
+        this.cacheSizeKib = cacheSizeKib;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.tempStore = tempStore;
+    }
+    
+    // Apply the per-connection pragmas of this profile
+    public void apply(Statement stmt) throws SQLException {
+        stmt.execute("PRAGMA synchronous = " + synchronous);
+        stmt.execute("PRAGMA cache_size = " + cacheSizeKib); // negative means KiB rather than pages
+        stmt.execute("PRAGMA mmap_size = " + mmapSizeBytes);
+        stmt.execute("PRAGMA temp_store = " + tempStore);
+    }
+    
+    // Profile named in the config file, or SAFE when the file or key is missing or invalid
+    public static DurabilityProfile fromConfig(String path) {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(path)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return SAFE;
+        }
+        
+        String name = properties.getProperty(CONFIG_KEY);
+        if (name == null || name.trim().isEmpty()) {
+            return SAFE;
+        }
+        
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown " + CONFIG_KEY + " '" + name + "' in " + path + ", using SAFE");
+            return SAFE;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return name() + " (synchronous=" + synchronous + ", cache=" + (-cacheSizeKib / 1024) + " MiB, mmap=" +
+                (mmapSizeBytes / (1024 * 1024)) + " MiB, temp_store=" + tempStore + ")";
+    }
+}
@@ -0,0 +1,114 @@
+import javax.swing.SwingUtilities;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+
+/**
+ * Measures how long the Swing event thread takes to pick up new events
+ * A probe thread posts an empty event every frame (about 16 ms) and records how long it waited in the queue.
+ * Waits longer than a frame mean the UI could not repaint at 60 fps for that long.
+ */
+public class EdtStallMonitor {
+    private static final long PROBE_INTERVAL_MS = 16;
+    private static final long FRAME_NANOS = 16_700_000L;
+    private static final long STALL_NANOS = 100_000_000L;
+    private static final int MAX_BUCKET_MS = 5000;
+    
+    // Latency histogram in 1 ms buckets; the last bucket collects everything slower
+    private final long[] buckets = new long[MAX_BUCKET_MS + 1];
+    private long probes;
+    private long missedFrames;
+    private long stalls;
+    private long maxNanos;
+    
+    private volatile boolean running;
+    private Thread probeThread;
+    
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        
+        running = true;
+        probeThread = new Thread(this::probeLoop, "edt-stall-monitor");
+        probeThread.setDaemon(true);
+        probeThread.start();
+    }
+    
+    public void stop() {
+        running = false;
+        Thread thread = probeThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+    
+    private void probeLoop() {
+        while (running) {
+            long posted = System.nanoTime();
+            try {
+                SwingUtilities.invokeAndWait(() -> { });
+                record(System.nanoTime() - posted);
+                Thread.sleep(PROBE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            } catch (InvocationTargetException e) {
+                return; // the probe itself cannot throw
+            }
+        }
+    }
+    
+    private synchronized void record(long nanos) {
+        probes++;
+        buckets[(int) Math.min(nanos / 1_000_000L, MAX_BUCKET_MS)]++;
+        if (nanos > FRAME_NANOS) {
+            missedFrames++;
+        }
+        if (nanos > STALL_NANOS) {
+            stalls++;
+        }
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+    
+    // Latency in milliseconds below which the given fraction of probes completed
+    public synchronized long getPercentileMillis(double fraction) {
+        long target = (long) Math.ceil(probes * fraction);
+        long seen = 0;
+        for (int ms = 0; ms < buckets.length; ms++) {
+            seen += buckets[ms];
+            if (seen >= target && seen > 0) {
+                return ms;
+            }
+        }
+        return 0;
+    }
+    
+    public synchronized long getProbes() {
+        return probes;
+    }
+    
+    public synchronized long getMissedFrames() {
+        return missedFrames;
+    }
+    
+    public synchronized long getStalls() {
+        return stalls;
+    }
+    
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+    
+    public synchronized void reset() {
+        Arrays.fill(buckets, 0);
+        probes = 0;
+        missedFrames = 0;
+        stalls = 0;
+        maxNanos = 0;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("EDT probes=%d, p50=%d ms, p99=%d ms, max=%.1f ms, missed frames=%d, stalls >100 ms=%d",
+                probes, getPercentileMillis(0.50), getPercentileMillis(0.99), getMaxMillis(), missedFrames, stalls);
+    }
+}
@@ -0,0 +1,158 @@
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded read-through cache for entities looked up by ID
+ * Entries expire after a time-to-live and the least recently used entry is evicted when the cache is full.
+ * Every caller gets its own copy of a cached object, so a caller that edits what it was given
+ * cannot change what the next caller sees.
+ */
+public class EntityCache<V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<Integer, CacheEntry<V>> entries;
+    private volatile boolean enabled = true;
+    
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private long generation;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    
+    // Loads an entity from the database on a cache miss
+    public interface Loader<V> {
+        V load(int id) throws SQLException;
+    }
+    
+    private static class CacheEntry<V> {
+        final V value;
+        final long expiresAt;
+        
+        CacheEntry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    // Constructor - copier makes an independent copy of an entity
+    public EntityCache(int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        if (maxSize <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and TTL must be positive");
+        }
+        
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.copier = copier;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
+    // Return the cached entity or load it. Loading happens outside the lock,
+    // so a slow query never blocks other lookups. Missing entities are not cached.
+    public V get(int id, Loader<V> loader) throws SQLException {
+        if (!enabled) {
+            return loader.load(id);
+        }
+        
+        long loadGeneration;
+        synchronized (this) {
+            CacheEntry<V> entry = entries.get(id);
+            if (entry != null) {
+                if (System.nanoTime() - entry.expiresAt < 0) {
+                    hits++;
+                    return copier.apply(entry.value);
+                }
+                entries.remove(id);
+                expirations++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        
+        V value = loader.load(id);
+        if (value != null) {
+            put(id, copier.apply(value), loadGeneration);
+        }
+        return value;
+    }
+    
+    private synchronized void put(int id, V value, long loadGeneration) {
+        if (!enabled || loadGeneration != generation) {
+            return;
+        }
+        
+        entries.put(id, new CacheEntry<>(value, System.nanoTime() + ttlNanos));
+        if (entries.size() > maxSize) {
+            Iterator<Map.Entry<Integer, CacheEntry<V>>> eldest = entries.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+    
+    // Drop a single entity after it was updated or deleted
+    public synchronized void invalidate(int id) {
+        generation++;
+        entries.remove(id);
+    }
+    
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+    
+    // Turn caching on or off; turning it off empties the cache
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+    
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+    
+    public synchronized void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        expirations = 0;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, expirations=%d",
+                entries.size(), maxSize, hits, misses, getHitRate() * 100, evictions, expirations);
+    }
+}
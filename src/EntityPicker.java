@@ -0,0 +1,233 @@
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Typeahead picker for a student, teacher or course
+ * Typing asks the database for the best few matches in the background and shows them in a popup;
+ * nothing is loaded until the user types. The picker holds the chosen entity itself, so callers
+ * never parse an ID back out of the displayed text. An empty picker means nothing is selected.
+ * Each shown set of suggestions is recorded as a flight recorder event (SchoolEvents.ViewLoad).
+ */
+public class EntityPicker<T> extends JPanel {
+    private static final long serialVersionUID = 1L;
+    
+    private static final int DEBOUNCE_MS = 150;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int VISIBLE_SUGGESTIONS = 8;
+    
+    private final String key;
+    private final ChangeEvent.Entity entity;
+    private final Suggestions<T> suggestions;
+    private final Function<T, String> label;
+    private final ToIntFunction<T> idOf;
+    private final DatabaseTaskRunner tasks;
+    
+    private final JTextField field;
+    private final DefaultListModel<T> listModel = new DefaultListModel<>();
+    private final JList<T> list = new JList<>(listModel);
+    private final JPopupMenu popup = new JPopupMenu();
+    private final Timer debounce;
+    
+    private T selected;
+    // Set while the picker changes the text itself, so that is not treated as typing
+    private boolean settingText;
+    
+    // Finds up to limit entities matching the typed text, best match first
+    public interface Suggestions<T> {
+        List<T> find(String text, int limit) throws SQLException;
+    }
+    
+    // Constructor - the key keeps lookups of different pickers from superseding each other;
+    // entity is the kind picked, for the view load events
+    public EntityPicker(String key, ChangeEvent.Entity entity, Suggestions<T> suggestions, Function<T, String> label,
+                        ToIntFunction<T> idOf, DatabaseTaskRunner tasks) {
+        super(new BorderLayout());
+        this.key = key;
+        this.entity = entity;
+        this.suggestions = suggestions;
+        this.label = label;
+        this.idOf = idOf;
+        this.tasks = tasks;
+        
+        field = new JTextField(20);
+        field.setToolTipText("Type a name or ID");
+        add(field, BorderLayout.CENTER);
+        
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setVisibleRowCount(VISIBLE_SUGGESTIONS);
+        list.setFocusable(false);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                @SuppressWarnings("unchecked")
+                String text = label.apply((T) value);
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    pick(listModel.get(index));
+                }
+            }
+        });
+        
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+        
+        debounce = new Timer(DEBOUNCE_MS, e -> lookup(field.getText().trim()));
+        debounce.setRepeats(false);
+        
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                textEdited();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                textEdited();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                textEdited();
+            }
+        });
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                handleKey(e);
+            }
+        });
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                popup.setVisible(false);
+            }
+        });
+    }
+    
+    public T getSelected() {
+        return selected;
+    }
+    
+    // Select an entity (or nothing, for null) and show its label
+    public void setSelected(T entity) {
+        debounce.stop();
+        tasks.cancel(key);
+        popup.setVisible(false);
+        selected = entity;
+        settingText = true;
+        try {
+            field.setText(entity == null ? "" : label.apply(entity));
+        } finally {
+            settingText = false;
+        }
+    }
+    
+    // True when the selected entity has this ID
+    public boolean isSelected(int id) {
+        return selected != null && idOf.applyAsInt(selected) == id;
+    }
+    
+    private void textEdited() {
+        if (settingText) {
+            return;
+        }
+        selected = null; // the text no longer names the chosen entity
+        debounce.restart();
+    }
+    
+    private void lookup(String text) {
+        if (text.isEmpty()) {
+            tasks.cancel(key);
+            popup.setVisible(false);
+            return;
+        }
+        
+        SchoolEvents.ViewLoad event = SchoolEvents.viewLoad(key, entity, "suggestions");
+        tasks.submit(key, () -> suggestions.find(text, MAX_SUGGESTIONS), matches -> {
+            showSuggestions(matches);
+            event.finish(matches.size());
+        }, e -> System.err.println("Failed to look up " + text + ": " + e.getMessage()));
+    }
+    
+    private void showSuggestions(List<T> matches) {
+        listModel.clear();
+        for (T match : matches) {
+            listModel.addElement(match);
+        }
+        if (matches.isEmpty() || !field.isFocusOwner()) {
+            popup.setVisible(false);
+            return;
+        }
+        
+        list.setSelectedIndex(0);
+        popup.setPopupSize(Math.max(field.getWidth(), list.getPreferredScrollableViewportSize().width + 20),
+                popup.getPreferredSize().height);
+        popup.show(field, 0, field.getHeight());
+    }
+    
+    private void handleKey(KeyEvent e) {
+        if (!popup.isVisible()) {
+            return;
+        }
+        
+        int index = list.getSelectedIndex();
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_DOWN:
+                moveSelection(Math.min(index + 1, listModel.size() - 1));
+                e.consume();
+                break;
+            case KeyEvent.VK_UP:
+                moveSelection(Math.max(index - 1, 0));
+                e.consume();
+                break;
+            case KeyEvent.VK_ENTER:
+                if (index >= 0) {
+                    pick(listModel.get(index));
+                }
+                e.consume();
+                break;
+            case KeyEvent.VK_ESCAPE:
+                popup.setVisible(false);
+                e.consume();
+                break;
+        }
+    }
+    
+    private void moveSelection(int index) {
+        list.setSelectedIndex(index);
+        list.ensureIndexIsVisible(index);
+    }
+    
+    private void pick(T entity) {
+        setSelected(entity);
+        field.requestFocusInWindow();
+    }
+}
@@ -0,0 +1,348 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index for typo-tolerant name search, stored in the database next to the rows it indexes
+ * Each name is reduced to the trigrams of its normalized words and of their consonant skeletons
+ * (see NameNormalizer), written when the row is written. Similarity is the Jaccard index of the
+ * trigram sets. Names in different scripts can only share skeleton trigrams, so an Arabic and a
+ * Latin name are compared on those alone; "Mohamad Haddad", "Muhammad Hadad" and "محمد حداد" all
+ * find each other.
+ * Trigrams are stored once per distinct normalized name, not per row: common names are shared by
+ * many students, and searching distinct names keeps the candidate set small. A candidate must share
+ * a minimum number of trigrams to reach the similarity threshold, so only the rarest query trigrams
+ * are used to find candidates.
+ */
+public class FuzzyNameIndex {
+    public static final String STUDENTS = "student";
+    public static final String TEACHERS = "teacher";
+    public static final String COURSES = "course";
+    
+    public static final double DEFAULT_MIN_SIMILARITY = 0.3;
+    
+    // Skeleton trigrams are marked so they never equal a trigram of the normalized text
+    private static final char SKELETON_MARK = '~';
+    
+    // Rows per batch when indexing a whole table
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+    
+    private static final String SELECT_KEY_SQL = "SELECT name_key FROM name_keys WHERE entity = ? AND id = ?";
+    private static final String UPSERT_KEY_SQL = "INSERT OR REPLACE INTO name_keys (entity, id, name_key) VALUES (?, ?, ?)";
+    private static final String DELETE_KEY_SQL = "DELETE FROM name_keys WHERE entity = ? AND id = ?";
+    private static final String KEY_USERS_SQL =
+            "SELECT COUNT(*) FROM (SELECT 1 FROM name_keys WHERE entity = ? AND name_key = ? LIMIT 2)";
+    private static final String KEY_IDS_SQL = "SELECT id FROM name_keys WHERE entity = ? AND name_key = ? ORDER BY id LIMIT ?";
+    private static final String INSERT_GRAM_SQL = "INSERT OR IGNORE INTO name_trigrams (entity, gram, name_key) VALUES (?, ?, ?)";
+    private static final String DELETE_GRAM_SQL = "DELETE FROM name_trigrams WHERE entity = ? AND gram = ? AND name_key = ?";
+    private static final String GRAM_FREQUENCY_SQL = "SELECT COUNT(*) FROM name_trigrams WHERE entity = ? AND gram = ?";
+    private static final String GRAM_KEYS_SQL = "SELECT name_key FROM name_trigrams WHERE entity = ? AND gram = ?";
+    
+    private final ConnectionPool pool;
+    
+    // A fuzzy match: the row ID and its similarity to the query, from 0 to 1
+    public static class Match {
+        private final int id;
+        private final double similarity;
+        
+        Match(int id, double similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+        
+        public int getId() {
+            return id;
+        }
+        
+        public double getSimilarity() {
+            return similarity;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d (%.2f)", id, similarity);
+        }
+    }
+    
+    // Constructor - statements are prepared through the pool's statement caches
+    public FuzzyNameIndex(ConnectionPool pool) {
+        this.pool = pool;
+    }
+    
+    // Tables for the index; used by the schema migration that introduces it
+    public static void createTables(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS name_keys (" +
+                "entity TEXT NOT NULL, " +
+                "id INTEGER NOT NULL, " +
+                "name_key TEXT NOT NULL, " +
+                "PRIMARY KEY (entity, id)" +
+                ") WITHOUT ROWID");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_name_keys_name_key ON name_keys (entity, name_key)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS name_trigrams (" +
+                "entity TEXT NOT NULL, " +
+                "gram TEXT NOT NULL, " +
+                "name_key TEXT NOT NULL, " +
+                "PRIMARY KEY (entity, gram, name_key)" +
+                ") WITHOUT ROWID");
+    }
+    
+    // Index (or re-index) a name. Must run on the writer connection, in the same
+    // transaction as the row change so the index never disagrees with the table.
+    public void put(Connection connection, String entity, int id, String name) throws SQLException {
+        String key = NameNormalizer.normalize(name);
+        String oldKey = selectKey(connection, entity, id);
+        if (key.equals(oldKey)) {
+            return;
+        }
+        
+        PreparedStatement upsert = pool.prepare(connection, UPSERT_KEY_SQL);
+        upsert.setString(1, entity);
+        upsert.setInt(2, id);
+        upsert.setString(3, key);
+        upsert.executeUpdate();
+        
+        if (oldKey != null) {
+            releaseKey(connection, entity, oldKey);
+        }
+        // The first row with this name adds its trigrams
+        if (countUsers(connection, entity, key) == 1) {
+            PreparedStatement insert = pool.prepare(connection, INSERT_GRAM_SQL);
+            for (String gram : trigrams(key)) {
+                insert.setString(1, entity);
+                insert.setString(2, gram);
+                insert.setString(3, key);
+                insert.executeUpdate();
+            }
+        }
+    }
+    
+    // Index every (id, name) row of a result set for an entity with no index entries yet, e.g.
+    // from the migration that creates the index. Rows are written in batches while the result set
+    // is read, so only one batch is held in memory however large the table is.
+    public void putAll(Connection connection, String entity, ResultSet rows) throws SQLException {
+        PreparedStatement upsert = pool.prepare(connection, UPSERT_KEY_SQL);
+        PreparedStatement insert = pool.prepare(connection, INSERT_GRAM_SQL);
+        int batched = 0;
+        while (rows.next()) {
+            String key = NameNormalizer.normalize(rows.getString(2));
+            upsert.setString(1, entity);
+            upsert.setInt(2, rows.getInt(1));
+            upsert.setString(3, key);
+            upsert.addBatch();
+            // Names shared by several rows add the same trigrams again; the insert ignores them
+            for (String gram : trigrams(key)) {
+                insert.setString(1, entity);
+                insert.setString(2, gram);
+                insert.setString(3, key);
+                insert.addBatch();
+            }
+            
+            if (++batched == BACKFILL_BATCH_SIZE) {
+                upsert.executeBatch();
+                insert.executeBatch();
+                batched = 0;
+            }
+        }
+        if (batched > 0) {
+            upsert.executeBatch();
+            insert.executeBatch();
+        }
+    }
+    
+    // Remove a name from the index; on the writer connection, like put()
+    public void remove(Connection connection, String entity, int id) throws SQLException {
+        String oldKey = selectKey(connection, entity, id);
+        if (oldKey == null) {
+            return;
+        }
+        
+        PreparedStatement delete = pool.prepare(connection, DELETE_KEY_SQL);
+        delete.setString(1, entity);
+        delete.setInt(2, id);
+        delete.executeUpdate();
+        releaseKey(connection, entity, oldKey);
+    }
+    
+    // The last row with a name takes its trigrams with it
+    private void releaseKey(Connection connection, String entity, String key) throws SQLException {
+        if (countUsers(connection, entity, key) > 0) {
+            return;
+        }
+        PreparedStatement delete = pool.prepare(connection, DELETE_GRAM_SQL);
+        for (String gram : trigrams(key)) {
+            delete.setString(1, entity);
+            delete.setString(2, gram);
+            delete.setString(3, key);
+            delete.executeUpdate();
+        }
+    }
+    
+    private String selectKey(Connection connection, String entity, int id) throws SQLException {
+        PreparedStatement select = pool.prepare(connection, SELECT_KEY_SQL);
+        select.setString(1, entity);
+        select.setInt(2, id);
+        try (ResultSet rs = select.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+    
+    // Rows using a name key, counted up to 2 since only 0, 1 or more matters
+    private int countUsers(Connection connection, String entity, String key) throws SQLException {
+        PreparedStatement count = pool.prepare(connection, KEY_USERS_SQL);
+        count.setString(1, entity);
+        count.setString(2, key);
+        try (ResultSet rs = count.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    // Names most similar to the text, best first, with at least minSimilarity
+    public List<Match> search(Connection connection, String entity, String text, int limit,
+                              double minSimilarity) throws SQLException {
+        Set<String> grams = trigrams(text);
+        if (grams.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        
+        // Jaccard >= t needs at least ceil(t * |query|) shared trigrams, so every match contains
+        // one of the (|query| - that + 1) rarest query trigrams. Names in the other script are
+        // scored on skeleton trigrams only, so the same holds for the query's skeleton trigrams.
+        Map<String, Integer> frequency = new HashMap<>();
+        PreparedStatement count = pool.prepare(connection, GRAM_FREQUENCY_SQL);
+        for (String gram : grams) {
+            count.setString(1, entity);
+            count.setString(2, gram);
+            try (ResultSet rs = count.executeQuery()) {
+                frequency.put(gram, rs.next() ? rs.getInt(1) : 0);
+            }
+        }
+        Set<String> probes = new HashSet<>(rarest(grams, frequency, minSimilarity));
+        probes.addAll(rarest(skeletonTrigrams(grams), frequency, minSimilarity));
+        
+        Set<String> candidates = new HashSet<>();
+        PreparedStatement keys = pool.prepare(connection, GRAM_KEYS_SQL);
+        for (String probe : probes) {
+            keys.setString(1, entity);
+            keys.setString(2, probe);
+            try (ResultSet rs = keys.executeQuery()) {
+                while (rs.next()) {
+                    candidates.add(rs.getString(1));
+                }
+            }
+        }
+        
+        // Score distinct names, then list the rows of the best ones
+        boolean arabicQuery = isArabic(NameNormalizer.normalize(text));
+        List<Map.Entry<String, Double>> scored = new ArrayList<>();
+        for (String candidate : candidates) {
+            double similarity = score(grams, arabicQuery, trigrams(candidate), isArabic(candidate));
+            if (similarity >= minSimilarity) {
+                scored.add(new AbstractMap.SimpleEntry<>(candidate, similarity));
+            }
+        }
+        scored.sort(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        
+        List<Match> matches = new ArrayList<>();
+        PreparedStatement ids = pool.prepare(connection, KEY_IDS_SQL);
+        for (Map.Entry<String, Double> name : scored) {
+            if (matches.size() >= limit) {
+                break;
+            }
+            ids.setString(1, entity);
+            ids.setString(2, name.getKey());
+            ids.setInt(3, limit - matches.size());
+            try (ResultSet rs = ids.executeQuery()) {
+                while (rs.next()) {
+                    matches.add(new Match(rs.getInt(1), name.getValue()));
+                }
+            }
+        }
+        return matches;
+    }
+    
+    // The trigrams a match must share at least one of, for a similarity of at least minSimilarity
+    private static List<String> rarest(Set<String> grams, Map<String, Integer> frequency, double minSimilarity) {
+        List<String> byFrequency = new ArrayList<>(grams);
+        byFrequency.sort(Comparator.comparing(frequency::get));
+        int minShared = Math.max(1, (int) Math.ceil(minSimilarity * byFrequency.size()));
+        return byFrequency.subList(0, Math.max(0, byFrequency.size() - minShared + 1));
+    }
+    
+    // Similarity of two names as search() computes it, without the database
+    public static double similarity(String a, String b) {
+        return score(trigrams(a), isArabic(NameNormalizer.normalize(a)), trigrams(b), isArabic(NameNormalizer.normalize(b)));
+    }
+    
+    // Jaccard index of all trigrams, or of the skeleton trigrams when only one name is in Arabic
+    private static double score(Set<String> first, boolean firstArabic, Set<String> second, boolean secondArabic) {
+        if (firstArabic != secondArabic) {
+            return jaccard(skeletonTrigrams(first), skeletonTrigrams(second));
+        }
+        return jaccard(first, second);
+    }
+    
+    private static Set<String> skeletonTrigrams(Set<String> grams) {
+        Set<String> skeleton = new HashSet<>();
+        for (String gram : grams) {
+            if (gram.charAt(0) == SKELETON_MARK) {
+                skeleton.add(gram);
+            }
+        }
+        return skeleton;
+    }
+    
+    // Whether normalized text is written in Arabic letters
+    private static boolean isArabic(String normalized) {
+        for (int i = 0; i < normalized.length(); i++) {
+            if (Character.UnicodeBlock.of(normalized.charAt(i)) == Character.UnicodeBlock.ARABIC) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static double jaccard(Set<String> first, Set<String> second) {
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String gram : first) {
+            if (second.contains(gram)) {
+                common++;
+            }
+        }
+        return (double) common / (first.size() + second.size() - common);
+    }
+    
+    // Trigrams of each normalized word and of its skeleton, padded with two spaces in front and
+    // one behind so short words and word starts count; skeleton trigrams are marked
+    static Set<String> trigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        addTrigrams(grams, NameNormalizer.normalize(text), "");
+        addTrigrams(grams, NameNormalizer.skeleton(text), String.valueOf(SKELETON_MARK));
+        return grams;
+    }
+    
+    private static void addTrigrams(Set<String> grams, String text, String mark) {
+        if (text.isEmpty()) {
+            return;
+        }
+        for (String word : text.split(" ")) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(mark + padded.substring(i, i + 3));
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * In-memory store of students, teachers or courses, indexed by ID
+ * Used by SimpleSchoolApp, which runs without a database. Lookup, insert and delete by ID are
+ * constant time (see IntHashMap); iteration is in insertion order, or in ID order on request.
+ */
+public class InMemoryRepository<T> implements Iterable<T> {
+    private final String entityName;
+    private final ToIntFunction<T> idOf;
+    private final IntHashMap<T> byId = new IntHashMap<>();
+    
+    // Constructor - entityName is used in error messages, e.g. "Student"
+    public InMemoryRepository(String entityName, ToIntFunction<T> idOf) {
+        this.entityName = entityName;
+        this.idOf = idOf;
+    }
+    
+    // Add an entity; rejects an ID that is already taken
+    public void add(T entity) {
+        int id = idOf.applyAsInt(entity);
+        if (byId.putIfAbsent(id, entity) != null) {
+            throw new IllegalArgumentException(entityName + " with ID " + id + " already exists");
+        }
+    }
+    
+    public T findById(int id) {
+        return byId.get(id);
+    }
+    
+    public boolean contains(int id) {
+        return byId.containsKey(id);
+    }
+    
+    // Remove by ID; returns the removed entity, or null if there was none
+    public T remove(int id) {
+        return byId.remove(id);
+    }
+    
+    public int size() {
+        return byId.size();
+    }
+    
+    // Entities in insertion order
+    @Override
+    public Iterator<T> iterator() {
+        return byId.iterator();
+    }
+    
+    // Entities in ascending ID order
+    public List<T> inIdOrder() {
+        List<T> result = new ArrayList<>(byId.size());
+        for (int id : byId.sortedKeys()) {
+            result.add(byId.get(id));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,264 @@
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash map from int keys to values, without boxing the keys
+ * Open addressing with linear probing over a power-of-two table kept at most half full. The table
+ * holds positions in dense key/value arrays, which keep the entries in insertion order for
+ * iteration. A removed entry leaves a hole in the dense arrays until the next resize compacts them;
+ * the table itself uses backward-shift deletion, so lookups never probe past removed keys.
+ * An empty map allocates nothing until the first put. Null values are not allowed. Not thread-safe.
+ */
+public class IntHashMap<V> implements Iterable<V> {
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 8;
+    private static final int[] NO_TABLE = {EMPTY};
+    private static final int[] NO_KEYS = {};
+    private static final Object[] NO_VALUES = {};
+    
+    private int[] table;
+    private int[] keys;
+    private Object[] values;
+    private int used; // dense entries written, removed ones included
+    private int size;
+    private int modCount;
+    private Collection<V> valuesView;
+    
+    public IntHashMap() {
+        this(0);
+    }
+    
+    // Constructor - room for the expected number of entries before the first resize
+    public IntHashMap(int expectedSize) {
+        if (expectedSize <= 0) {
+            release();
+            return;
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public boolean containsKey(int key) {
+        return find(key) != EMPTY;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = find(key);
+        return slot == EMPTY ? null : (V) values[table[slot]];
+    }
+    
+    // Map the key to the value; returns the previous value, or null if the key was new
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntHashMap does not allow null values");
+        }
+        
+        int slot = find(key);
+        if (slot != EMPTY) {
+            V previous = (V) values[table[slot]];
+            values[table[slot]] = value;
+            return previous;
+        }
+        
+        if (used == keys.length) {
+            // Grow when at least half the entries are live, otherwise just compact away the holes
+            rebuild(keys.length == 0 ? MIN_CAPACITY : size >= keys.length / 2 ? keys.length << 1 : keys.length);
+        }
+        keys[used] = key;
+        values[used] = value;
+        insertIndex(used);
+        used++;
+        size++;
+        modCount++;
+        return null;
+    }
+    
+    // Map the key to the value only if it is not mapped yet; returns the existing value, or null
+    public V putIfAbsent(int key, V value) {
+        V existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+    
+    // Remove the key; returns its value, or null if it was not mapped
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot == EMPTY) {
+            return null;
+        }
+        
+        int index = table[slot];
+        V previous = (V) values[index];
+        values[index] = null;
+        deleteSlot(slot);
+        size--;
+        modCount++;
+        return previous;
+    }
+    
+    public void clear() {
+        release();
+        modCount++;
+    }
+    
+    // Keys in insertion order
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        for (int i = 0; i < used; i++) {
+            if (values[i] != null) {
+                result[n++] = keys[i];
+            }
+        }
+        return result;
+    }
+    
+    // Keys in ascending order
+    public int[] sortedKeys() {
+        int[] result = keys();
+        Arrays.sort(result);
+        return result;
+    }
+    
+    // Read-only view of the values in insertion order; reflects later changes to the map
+    public Collection<V> values() {
+        if (valuesView == null) {
+            valuesView = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return IntHashMap.this.iterator();
+                }
+                
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return valuesView;
+    }
+    
+    // Values in insertion order
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private final int expectedModCount = modCount;
+            private int next = skipRemoved(0);
+            
+            @Override
+            public boolean hasNext() {
+                return next < used;
+            }
+            
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= used) {
+                    throw new NoSuchElementException();
+                }
+                V value = (V) values[next];
+                next = skipRemoved(next + 1);
+                return value;
+            }
+        };
+    }
+    
+    private int skipRemoved(int index) {
+        while (index < used && values[index] == null) {
+            index++;
+        }
+        return index;
+    }
+    
+    // Table slot holding the key, or EMPTY
+    private int find(int key) {
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[table[slot]] == key) {
+                return slot;
+            }
+        }
+        return EMPTY;
+    }
+    
+    private void insertIndex(int index) {
+        int mask = table.length - 1;
+        int slot = hash(keys[index]) & mask;
+        while (table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index;
+    }
+    
+    // Close the gap left by a removed slot by moving back later entries of the same probe run
+    private void deleteSlot(int gap) {
+        int mask = table.length - 1;
+        for (int slot = (gap + 1) & mask; table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = hash(keys[table[slot]]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                table[gap] = table[slot];
+                gap = slot;
+            }
+        }
+        table[gap] = EMPTY;
+    }
+    
+    private void rebuild(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed; i++) {
+            if (oldValues[i] != null) {
+                keys[used] = oldKeys[i];
+                values[used] = oldValues[i];
+                insertIndex(used);
+                used++;
+            }
+        }
+        size = used;
+    }
+    
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        table = new int[capacity << 1];
+        Arrays.fill(table, EMPTY);
+        used = 0;
+        size = 0;
+    }
+    
+    private void release() {
+        keys = NO_KEYS;
+        values = NO_VALUES;
+        table = NO_TABLE;
+        used = 0;
+        size = 0;
+    }
+    
+    // IDs are often sequential; mixing spreads them over the whole table
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,163 @@
+import javax.swing.JLabel;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Search-as-you-type for one table
+ * Keystrokes are debounced, the query runs on the database task runner and ranked results are
+ * appended to the table as they arrive. A newer keystroke stops the query that is still running.
+ * Clearing the field shows the full table again.
+ */
+public class LiveSearch<T> {
+    private static final int DEBOUNCE_MS = 250;
+    private static final int MAX_RESULTS = 1000;
+    
+    private final String key;
+    private final JTextField field;
+    private final JLabel status;
+    private final JTable table;
+    private final TableModel allRows;
+    private final ResultsModel results = new ResultsModel();
+    private final PagedTableModel.ColumnValues<T> columnValues;
+    private final Query<T> query;
+    private final DatabaseTaskRunner tasks;
+    private final Timer debounce;
+    
+    // Text of the search currently shown, or null when the full table is shown
+    private String activeText;
+    
+    // Opens the ranked results for a search text; the stream is closed when the search stops
+    public interface Query<T> {
+        Stream<T> open(String text) throws SQLException;
+    }
+    
+    // Constructor - results use the same columns as the full table
+    public LiveSearch(String key, JTextField field, JLabel status, JTable table, TableModel allRows,
+                      PagedTableModel.ColumnValues<T> columnValues, Query<T> query, DatabaseTaskRunner tasks) {
+        this.key = key;
+        this.field = field;
+        this.status = status;
+        this.table = table;
+        this.allRows = allRows;
+        this.columnValues = columnValues;
+        this.query = query;
+        this.tasks = tasks;
+        
+        debounce = new Timer(DEBOUNCE_MS, e -> search(field.getText().trim()));
+        debounce.setRepeats(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+    }
+    
+    // Run the current search again, e.g. after the data changed; does nothing when no search is shown
+    public void refresh() {
+        if (activeText != null) {
+            search(activeText);
+        }
+    }
+    
+    public boolean isActive() {
+        return activeText != null;
+    }
+    
+    private void search(String text) {
+        if (text.isEmpty()) {
+            tasks.cancel(key);
+            activeText = null;
+            status.setText(" ");
+            if (table.getModel() != allRows) {
+                table.setModel(allRows);
+            }
+            return;
+        }
+        
+        activeText = text;
+        results.clear();
+        if (table.getModel() != results) {
+            table.setModel(results);
+        }
+        status.setText("Searching...");
+        
+        tasks.submitProgressive(key, sink -> {
+            try (Stream<T> matches = query.open(text)) {
+                Iterator<T> iterator = matches.iterator();
+                int count = 0;
+                while (count++ < MAX_RESULTS && iterator.hasNext() && sink.add(iterator.next())) {
+                    // keep reading until done, capped or superseded
+                }
+            }
+        }, results::addRows, () -> {
+            int found = results.getRowCount();
+            status.setText(found == MAX_RESULTS ? "Showing the first " + MAX_RESULTS + " matches"
+                    : found + (found == 1 ? " match" : " matches"));
+        }, e -> status.setText("Search failed: " + e.getMessage()));
+    }
+    
+    // Search results in rank order, filled in chunk by chunk
+    private class ResultsModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<T> rows = new ArrayList<>();
+        
+        void clear() {
+            int count = rows.size();
+            rows.clear();
+            if (count > 0) {
+                fireTableRowsDeleted(0, count - 1);
+            }
+        }
+        
+        void addRows(List<T> chunk) {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            int first = rows.size();
+            rows.addAll(chunk);
+            fireTableRowsInserted(first, rows.size() - 1);
+        }
+        
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+        
+        @Override
+        public int getColumnCount() {
+            return allRows.getColumnCount();
+        }
+        
+        @Override
+        public String getColumnName(int column) {
+            return allRows.getColumnName(column);
+        }
+        
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            return columnValues.get(rows.get(rowIndex), columnIndex);
+        }
+    }
+}
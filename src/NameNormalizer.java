@@ -0,0 +1,144 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalization of person names and course titles for searching
+ * Names in this school are entered in Arabic and in English, and inconsistently: with or without
+ * diacritics, with different alef/hamza forms, taa marbuta written as haa, and several English
+ * spellings of the same Arabic name. normalize() removes the spelling differences that do not change
+ * the name; skeleton() reduces a word to its consonants in Latin letters, so "Mohammed", "Muhammad"
+ * and "محمد" share the key "mhmd".
+ */
+public final class NameNormalizer {
+    private NameNormalizer() {
+    }
+    
+    // Lower case, diacritics and tatweel removed, Arabic letter variants folded, Arabic-Indic
+    // digits as ASCII, and words separated by single spaces
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK || c == '\u0640') { // tatweel
+                continue;
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                space = result.length() > 0;
+                continue;
+            }
+            if (space) {
+                result.append(' ');
+                space = false;
+            }
+            result.append(fold(c));
+        }
+        return result.toString();
+    }
+    
+    // Normalized text split into words
+    public static String[] words(String text) {
+        String normalized = normalize(text);
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+    
+    private static char fold(char c) {
+        switch (c) {
+            case 'أ': case 'إ': case 'آ': case 'ٱ':
+                return 'ا';
+            case 'ة':
+                return 'ه';
+            case 'ى': case 'ئ':
+                return 'ي';
+            case 'ؤ':
+                return 'و';
+            default:
+                if (c >= '٠' && c <= '٩') {
+                    return (char) ('0' + (c - '٠'));
+                }
+                if (c >= '۰' && c <= '۹') { // Persian digits
+                    return (char) ('0' + (c - '۰'));
+                }
+                return Character.toLowerCase(c);
+        }
+    }
+    
+    // Consonant skeleton of each word in Latin letters, words separated by spaces. The first
+    // letter is always kept (a starting vowel, alef or ain as "a"); later vowels are dropped,
+    // q/c become k and doubled letters collapse.
+    // Arabic letters are transliterated first, so both scripts produce comparable keys.
+    public static String skeleton(String text) {
+        List<String> keys = new ArrayList<>();
+        for (String word : words(text)) {
+            String key = wordSkeleton(word);
+            if (!key.isEmpty()) {
+                keys.add(key);
+            }
+        }
+        return String.join(" ", keys);
+    }
+    
+    private static String wordSkeleton(String word) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            String letters = i == 0 ? firstLetter(c) : laterLetter(c);
+            for (int j = 0; j < letters.length(); j++) {
+                char k = letters.charAt(j);
+                if (key.length() == 0 || key.charAt(key.length() - 1) != k) {
+                    key.append(k);
+                }
+            }
+        }
+        return key.toString();
+    }
+    
+    private static String firstLetter(char c) {
+        switch (c) {
+            case 'a': case 'e': case 'i': case 'o': case 'u':
+            case 'ا': case 'ع':
+                return "a";
+            case 'w': case 'و': return "w";
+            case 'y': case 'ي': return "y";
+            default: return laterLetter(c);
+        }
+    }
+    
+    private static String laterLetter(char c) {
+        switch (c) {
+            // Latin vowels, and Arabic letters that are written as vowels or not at all
+            case 'a': case 'e': case 'i': case 'o': case 'u': case 'y':
+            case 'ا': case 'و': case 'ي': case 'ع': case 'ء':
+                return "";
+            case 'q': case 'c': case 'ق': case 'ك':
+                return "k";
+            case 'ب': return "b";
+            case 'ت': case 'ط': return "t";
+            case 'ث': return "th";
+            case 'ج': return "j";
+            case 'ح': case 'ه': return "h";
+            case 'خ': return "kh";
+            case 'د': case 'ض': return "d";
+            case 'ذ': return "dh";
+            case 'ر': return "r";
+            case 'ز': case 'ظ': return "z";
+            case 'س': case 'ص': return "s";
+            case 'ش': return "sh";
+            case 'غ': return "gh";
+            case 'ف': return "f";
+            case 'ل': return "l";
+            case 'م': return "m";
+            case 'ن': return "n";
+            default:
+                return Character.isLetterOrDigit(c) ? String.valueOf(c) : "";
+        }
+    }
+}
@@ -0,0 +1,320 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.beans.ConstructorProperties;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.BaseStream;
+
+/**
+ * Latency histograms, call, error and row counts for each SchoolDB operation
+ * Every public database method of SchoolDB runs through time(). Metrics are off by default, and
+ * while they are off and no flight recording has database calls enabled, time() only reads two
+ * flags before running the call. The numbers are exposed through JMX
+ * (see OperationMetricsMXBean) and can be printed to standard output at a fixed interval.
+ * Independently of that, each call is emitted as a flight recorder event (SchoolEvents.DatabaseCall)
+ * while a recording is running.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    // Keys in the config file read by the default SchoolDB constructor
+    public static final String CONFIG_KEY = "db.metrics";
+    public static final String LOG_INTERVAL_KEY = "db.metrics.logSeconds";
+    
+    private static final String JMX_DOMAIN = "SchoolManagement";
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    
+    private volatile boolean enabled;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private ObjectName objectName;
+    
+    // Periodic log; the previous snapshots are only touched by the log thread
+    private ScheduledExecutorService logExecutor;
+    private long logIntervalSeconds;
+    private Map<Operation, OperationStats> lastLogged = new HashMap<>();
+    private final Map<Operation, LatencyHistogram.Snapshot> lastLoggedLatency = new HashMap<>();
+    
+    // A database call measured by time()
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+    
+    // Running totals for one operation
+    private static class Operation {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+    }
+    
+    // Totals and percentiles of one operation, as shown over JMX and in the log
+    public static class OperationStats {
+        private final String name;
+        private final long count;
+        private final long errors;
+        private final long rows;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double p999Millis;
+        private final double maxMillis;
+        
+        @ConstructorProperties({"name", "count", "errors", "rows", "p50Millis", "p99Millis", "p999Millis", "maxMillis"})
+        public OperationStats(String name, long count, long errors, long rows, double p50Millis, double p99Millis,
+                              double p999Millis, double maxMillis) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.rows = rows;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.p999Millis = p999Millis;
+            this.maxMillis = maxMillis;
+        }
+        
+        OperationStats(String name, LatencyHistogram.Snapshot latency, long errors, long rows) {
+            this(name, latency.getCount(), errors, rows, latency.getValueAtPercentile(0.5) / NANOS_PER_MILLI,
+                    latency.getValueAtPercentile(0.99) / NANOS_PER_MILLI,
+                    latency.getValueAtPercentile(0.999) / NANOS_PER_MILLI, latency.getMax() / NANOS_PER_MILLI);
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public long getErrors() {
+            return errors;
+        }
+        
+        public long getRows() {
+            return rows;
+        }
+        
+        public double getP50Millis() {
+            return p50Millis;
+        }
+        
+        public double getP99Millis() {
+            return p99Millis;
+        }
+        
+        public double getP999Millis() {
+            return p999Millis;
+        }
+        
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-28s calls=%d errors=%d rows=%d p50=%.3f ms p99=%.3f ms " +
+                    "p999=%.3f ms max=%.3f ms", name, count, errors, rows, p50Millis, p99Millis, p999Millis, maxMillis);
+        }
+    }
+    
+    // Run a call, recording its latency, whether it failed and the rows it returned
+    public <T> T time(String operation, SqlCall<T> call) throws SQLException {
+        boolean measure = enabled;
+        SchoolEvents.DatabaseCall event = SchoolEvents.databaseCall();
+        if (!measure && event == null) {
+            return call.call();
+        }
+        
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.call();
+        } catch (SQLException | RuntimeException e) {
+            if (measure) {
+                Operation stats = operation(operation);
+                stats.latency.record(System.nanoTime() - start);
+                stats.errors.increment();
+            }
+            if (event != null) {
+                event.finish(operation, 0, true);
+            }
+            throw e;
+        }
+        long rows = rowsOf(result);
+        if (measure) {
+            Operation stats = operation(operation);
+            stats.latency.record(System.nanoTime() - start);
+            stats.rows.add(rows);
+        }
+        if (event != null) {
+            event.finish(operation, rows, false);
+        }
+        return result;
+    }
+    
+    private Operation operation(String name) {
+        Operation stats = operations.get(name);
+        return stats != null ? stats : operations.computeIfAbsent(name, n -> new Operation());
+    }
+    
+    // Rows a call returned or changed. Streams count as 0: they are timed until the cursor opens.
+    private static long rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        } else if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof int[]) {
+            return ((int[]) result).length;
+        } else if (result instanceof BatchResult) {
+            return ((BatchResult) result).getInserted();
+        } else if (result instanceof Boolean) {
+            return (Boolean) result ? 1 : 0;
+        } else if (result instanceof BaseStream) {
+            return 0;
+        }
+        return 1; // a single entity
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> result = new ArrayList<>();
+        for (Map.Entry<String, Operation> entry : new TreeMap<>(operations).entrySet()) {
+            Operation stats = entry.getValue();
+            result.add(new OperationStats(entry.getKey(), stats.latency.snapshot(), stats.errors.sum(), stats.rows.sum()));
+        }
+        return result;
+    }
+    
+    @Override
+    public void reset() {
+        operations.clear();
+    }
+    
+    // Enable metrics and the periodic log as set in a config file (both off if the keys are missing)
+    public void configure(String path) {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(path)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return;
+        }
+        
+        setEnabled(Boolean.parseBoolean(properties.getProperty(CONFIG_KEY, "false").trim()));
+        String seconds = properties.getProperty(LOG_INTERVAL_KEY);
+        if (seconds != null && !seconds.trim().isEmpty()) {
+            try {
+                setLogIntervalSeconds(Long.parseLong(seconds.trim()));
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid " + LOG_INTERVAL_KEY + " '" + seconds + "' in " + path + ", not logging metrics");
+            }
+        }
+    }
+    
+    @Override
+    public synchronized long getLogIntervalSeconds() {
+        return logIntervalSeconds;
+    }
+    
+    @Override
+    public synchronized void setLogIntervalSeconds(long seconds) {
+        if (logExecutor != null) {
+            logExecutor.shutdownNow();
+            logExecutor = null;
+        }
+        logIntervalSeconds = Math.max(0, seconds);
+        if (logIntervalSeconds == 0) {
+            return;
+        }
+        
+        logExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "school-metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logExecutor.scheduleAtFixedRate(this::logInterval, logIntervalSeconds, logIntervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    // Print what happened since the previous snapshot, one line per operation that was called
+    private void logInterval() {
+        Map<Operation, OperationStats> logged = new HashMap<>();
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Operation> entry : new TreeMap<>(operations).entrySet()) {
+            Operation stats = entry.getValue();
+            LatencyHistogram.Snapshot latency = stats.latency.snapshot();
+            OperationStats total = new OperationStats(entry.getKey(), latency, stats.errors.sum(), stats.rows.sum());
+            logged.put(stats, total);
+            
+            // Operations are new after a reset, so there is nothing to subtract from them
+            OperationStats before = lastLogged.get(stats);
+            LatencyHistogram.Snapshot latencyBefore = lastLoggedLatency.put(stats, latency);
+            if (before != null) {
+                latency = latency.minus(latencyBefore);
+            }
+            if (latency.getCount() > 0) {
+                lines.add(new OperationStats(entry.getKey(), latency,
+                        total.getErrors() - (before == null ? 0 : before.getErrors()),
+                        total.getRows() - (before == null ? 0 : before.getRows())).toString());
+            }
+        }
+        lastLogged = logged;
+        lastLoggedLatency.keySet().retainAll(logged.keySet());
+        
+        if (!lines.isEmpty()) {
+            System.out.println("SchoolDB operations in the last " + getLogIntervalSeconds() + " s:");
+            for (String line : lines) {
+                System.out.println("  " + line);
+            }
+        }
+    }
+    
+    // Register with the platform MBean server; failures only disable the JMX view
+    public synchronized void register(String dbUrl) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(JMX_DOMAIN + ":type=SchoolDB,database=" + ObjectName.quote(dbUrl) +
+                    ",instance=" + INSTANCES.incrementAndGet());
+            server.registerMBean(this, objectName);
+        } catch (JMException | RuntimeException e) {
+            objectName = null;
+            System.err.println("Could not register database metrics with JMX: " + e.getMessage());
+        }
+    }
+    
+    // Stop the log and remove the JMX registration
+    public synchronized void close() {
+        setLogIntervalSeconds(0);
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                System.err.println("Could not unregister database metrics: " + e.getMessage());
+            }
+            objectName = null;
+        }
+    }
+}
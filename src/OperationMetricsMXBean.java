@@ -0,0 +1,22 @@
+import java.util.List;
+
+/**
+ * JMX view of a SchoolDB's operation metrics
+ * Registered under "SchoolManagement:type=SchoolDB" for every open database, so latencies can be
+ * watched (and metrics switched on) from JConsole or VisualVM while the application runs.
+ */
+public interface OperationMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    // Seconds between snapshots printed to standard output; 0 turns the log off
+    long getLogIntervalSeconds();
+
+    void setLogIntervalSeconds(long seconds);
+
+    // Totals and latency percentiles per operation since metrics were enabled or last reset
+    List<OperationMetrics.OperationStats> getOperations();
+
+    void reset();
+}
@@ -0,0 +1,286 @@
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Table model that loads rows a page at a time with keyset pagination
+ * Only the row keys (one int per row) are held for the whole table; row objects are loaded
+ * in the background when a page becomes visible and kept in a small LRU page cache.
+ * Rows whose page is still loading show as empty cells until it arrives. Every load is recorded
+ * as a flight recorder event (SchoolEvents.ViewLoad) while a recording is running.
+ */
+public class PagedTableModel<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 10;
+    
+    private final ChangeEvent.Entity entity;
+    private final String view;
+    private final String[] columnNames;
+    private final KeyLoader keyLoader;
+    private final PageLoader<T> pageLoader;
+    private final ToIntFunction<T> keyOf;
+    private final ColumnValues<T> columnValues;
+    private final DatabaseTaskRunner tasks;
+    private final String refreshKey;
+    
+    // All state below is only touched on the event thread
+    private int[] keys = new int[0];
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    
+    // Bumped on refresh so pages requested for the old key snapshot are discarded
+    private int generation;
+    
+    // Loads every row key in display order
+    public interface KeyLoader {
+        int[] load() throws SQLException;
+    }
+    
+    // Loads up to limit rows with keys greater than afterKey, in key order
+    public interface PageLoader<T> {
+        List<T> load(int afterKey, int limit) throws SQLException;
+    }
+    
+    // Value shown in a column for a row
+    public interface ColumnValues<T> {
+        Object get(T row, int column);
+    }
+    
+    // Constructor - entity is the kind of row shown, for the view load events
+    public PagedTableModel(ChangeEvent.Entity entity, String[] columnNames, KeyLoader keyLoader, PageLoader<T> pageLoader,
+                           ToIntFunction<T> keyOf, ColumnValues<T> columnValues, DatabaseTaskRunner tasks) {
+        this.entity = entity;
+        this.view = "table:" + entity.name().toLowerCase(Locale.ROOT);
+        this.columnNames = columnNames.clone();
+        this.keyLoader = keyLoader;
+        this.pageLoader = pageLoader;
+        this.keyOf = keyOf;
+        this.columnValues = columnValues;
+        this.tasks = tasks;
+        this.refreshKey = "pagedTable@" + System.identityHashCode(this);
+        this.pages = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > MAX_CACHED_PAGES;
+            }
+        };
+    }
+    
+    // Reload the row keys and drop every cached page; a newer refresh supersedes an unfinished one
+    public void refresh() {
+        SchoolEvents.ViewLoad event = SchoolEvents.viewLoad(view, entity, "keys");
+        tasks.submit(refreshKey, keyLoader::load, loadedKeys -> {
+            generation++;
+            keys = loadedKeys;
+            pages.clear();
+            loading.clear();
+            fireTableDataChanged();
+            event.finish(loadedKeys.length);
+        }, e -> System.err.println("Failed to load table keys: " + e.getMessage()));
+    }
+    
+    @Override
+    public int getRowCount() {
+        return keys.length;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+    
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T row = getRow(rowIndex);
+        return row == null ? null : columnValues.get(row, columnIndex);
+    }
+    
+    // Key of a row, available even before its page is loaded
+    public int getKeyAt(int rowIndex) {
+        return keys[rowIndex];
+    }
+    
+    // Row object, or null while its page is loading. Asking for a row in the second
+    // half of a page also prefetches the next page so scrolling down rarely waits.
+    public T getRow(int rowIndex) {
+        int page = rowIndex / PAGE_SIZE;
+        int offset = rowIndex % PAGE_SIZE;
+        if (offset >= PAGE_SIZE / 2) {
+            requestPage(page + 1);
+        }
+        
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+    
+    private void requestPage(int page) {
+        int first = page * PAGE_SIZE;
+        if (first >= keys.length || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        
+        int afterKey = page == 0 ? Integer.MIN_VALUE : keys[first - 1];
+        int requestGeneration = generation;
+        SchoolEvents.ViewLoad event = SchoolEvents.viewLoad(view, entity, "page");
+        // A failed page stays marked as loading until the next refresh, so painting does not retry it in a loop
+        tasks.submit(() -> pageLoader.load(afterKey, PAGE_SIZE), rows -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading.remove(page);
+            pages.put(page, rows);
+            fireTableRowsUpdated(first, Math.min(first + PAGE_SIZE, keys.length) - 1);
+            event.finish(rows.size());
+        }, e -> System.err.println("Failed to load table page " + page + ": " + e.getMessage()));
+    }
+    
+    // Apply one delivery of committed changes to this table's entity. The net change per key is
+    // worked out first and all inserts and deletes are merged into the keys in one pass, so a
+    // delivery costs one copy of the keys however many rows it touches. Pages from the first
+    // changed row on are dropped because their rows shifted; only the visible ones are loaded again.
+    public void applyChanges(List<ChangeEvent> changes) {
+        Map<Integer, ChangeEvent.Kind> net = new TreeMap<>();
+        for (ChangeEvent change : changes) {
+            if (change.getEntity() == entity) {
+                // An update to a row inserted in the same delivery is part of the insert
+                ChangeEvent.Kind previous = net.get(change.getId());
+                boolean inserted = previous == ChangeEvent.Kind.INSERT && change.getKind() == ChangeEvent.Kind.UPDATE;
+                net.put(change.getId(), inserted ? previous : change.getKind());
+            }
+        }
+        
+        List<Integer> inserted = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        List<Integer> updated = new ArrayList<>();
+        for (Map.Entry<Integer, ChangeEvent.Kind> change : net.entrySet()) {
+            boolean present = Arrays.binarySearch(keys, change.getKey()) >= 0;
+            if (change.getValue() == ChangeEvent.Kind.DELETE) {
+                if (present) {
+                    deleted.add(change.getKey());
+                }
+            } else if (present) {
+                updated.add(change.getKey());
+            } else if (change.getValue() == ChangeEvent.Kind.INSERT) {
+                inserted.add(change.getKey());
+            }
+        }
+        
+        mergeKeys(inserted, deleted);
+        for (int key : updated) {
+            rowUpdated(key);
+        }
+    }
+    
+    // Merge sorted inserted keys (all absent) and deleted keys (all present) into the keys. Deletions
+    // are then reported from the bottom up and insertions from the top down, so every event's row
+    // index is right for the table as it stands after the events before it.
+    private void mergeKeys(List<Integer> inserted, List<Integer> deleted) {
+        if (inserted.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        
+        int[] merged = new int[keys.length + inserted.size() - deleted.size()];
+        int[] deletedRows = new int[deleted.size()];
+        int[] insertedRows = new int[inserted.size()];
+        int from = 0;
+        int to = 0;
+        int nextDeleted = 0;
+        int nextInserted = 0;
+        while (from < keys.length || nextInserted < inserted.size()) {
+            if (nextInserted < inserted.size() && (from == keys.length || inserted.get(nextInserted) < keys[from])) {
+                insertedRows[nextInserted] = to;
+                merged[to++] = inserted.get(nextInserted++);
+            } else if (nextDeleted < deleted.size() && keys[from] == deleted.get(nextDeleted)) {
+                deletedRows[nextDeleted++] = from++;
+            } else {
+                merged[to++] = keys[from++];
+            }
+        }
+        keys = merged;
+        
+        int firstRow = Math.min(deletedRows.length > 0 ? deletedRows[0] : Integer.MAX_VALUE,
+                insertedRows.length > 0 ? insertedRows[0] : Integer.MAX_VALUE);
+        dropPagesFrom(firstRow / PAGE_SIZE);
+        for (int i = deletedRows.length - 1; i >= 0; i--) {
+            fireTableRowsDeleted(deletedRows[i], deletedRows[i]);
+        }
+        for (int row : insertedRows) {
+            fireTableRowsInserted(row, row);
+        }
+    }
+    
+    // Reload a single row in place if its page is cached
+    private void rowUpdated(int key) {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0 || key == Integer.MIN_VALUE) {
+            return;
+        }
+        
+        int page = index / PAGE_SIZE;
+        if (!pages.containsKey(page)) {
+            return; // loaded fresh when it becomes visible
+        }
+        
+        int requestGeneration = generation;
+        SchoolEvents.ViewLoad event = SchoolEvents.viewLoad(view, entity, "row");
+        tasks.submit(() -> pageLoader.load(key - 1, 1), rows -> {
+            List<T> cached = pages.get(page);
+            if (requestGeneration != generation || cached == null) {
+                return;
+            }
+            
+            int offset = index % PAGE_SIZE;
+            if (rows.isEmpty() || keyOf.applyAsInt(rows.get(0)) != key) {
+                // deleted before the reload ran
+                applyChanges(Collections.singletonList(new ChangeEvent(entity, ChangeEvent.Kind.DELETE, key)));
+                return;
+            }
+            if (offset < cached.size()) {
+                cached.set(offset, rows.get(0));
+            }
+            fireTableRowsUpdated(index, index);
+            event.finish(1);
+        }, e -> System.err.println("Failed to reload table row " + key + ": " + e.getMessage()));
+    }
+    
+    // Drop cached pages but keep the keys - for changes to data shown in many rows,
+    // such as a teacher name that appears in every course row of that teacher
+    public void reloadPages() {
+        dropPagesFrom(0);
+        if (keys.length > 0) {
+            fireTableRowsUpdated(0, keys.length - 1);
+        }
+    }
+    
+    // Pages loading from the old row positions are discarded, so they are requested again when painted
+    private void dropPagesFrom(int firstPage) {
+        generation++;
+        loading.clear();
+        pages.keySet().removeIf(page -> page >= firstPage);
+    }
+    
+    public int getCachedPageCount() {
+        return pages.size();
+    }
+}
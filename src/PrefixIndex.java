@@ -0,0 +1,371 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory prefix index over the names of one kind of entity, for instant autocomplete
+ * Names are split into words and normalized with NameNormalizer, so case, accents, Arabic
+ * diacritics and alef/hamza and taa marbuta variants do not matter.
+ * Every word is kept in one sorted array, so a prefix lookup is a binary search followed by a scan
+ * of the matching range. Writes go to a small overlay that is merged into the arrays once it grows,
+ * which keeps single updates cheap without giving up the compact layout. All methods are thread-safe.
+ */
+public class PrefixIndex {
+    // The overlay is merged once it holds this many changes, or 1/16 of the indexed names if that is more
+    private static final int MIN_MERGE_SIZE = 1024;
+    private static final int MAX_WORD_POSITION = 255;
+    private static final int MAX_NAME_LENGTH = 0xFFFF;
+    
+    private final String description;
+    private volatile boolean ready;
+    
+    // Base rows sorted by ID. The normalized words of row r are nameWords[wordStart[r]] up to
+    // nameWords[wordStart[r + 1]], so multi-word queries never normalize a name again.
+    private int[] ids = new int[0];
+    private String[] names = new String[0];
+    private String[] nameWords = new String[0];
+    private int[] wordStart = {0};
+    
+    // Every word sorted by word then ID, with its row and, for ranking, its position in the
+    // name (bits 16-23) above the length of the name (low 16 bits)
+    private String[] words = new String[0];
+    private int[] wordRows = new int[0];
+    private int[] wordInfo = new int[0];
+    
+    // Overlay: names written since the last merge, and IDs whose base entries are out of date
+    private final Map<Integer, OverlayName> overlay = new HashMap<>();
+    private final Set<Integer> stale = new HashSet<>();
+    
+    private static class OverlayName {
+        final String name;
+        final String[] words;
+        
+        OverlayName(String name, String[] words) {
+            this.name = name;
+            this.words = words;
+        }
+    }
+    
+    // Constructor - the description names the index in reports, e.g. "student names"
+    public PrefixIndex(String description) {
+        this.description = description;
+    }
+    
+    // Replace the whole index; ids and names are parallel arrays in any order
+    public synchronized void load(int[] ids, String[] names) {
+        rebuild(ids.clone(), names.clone());
+        overlay.clear();
+        stale.clear();
+        ready = true;
+    }
+    
+    // True once the index has been loaded; until then callers should fall back to the database
+    public boolean isReady() {
+        return ready;
+    }
+    
+    // Add a name, or replace the name indexed for this ID
+    public synchronized void put(int id, String name) {
+        if (Arrays.binarySearch(ids, id) >= 0) {
+            stale.add(id);
+        }
+        overlay.put(id, new OverlayName(name, NameNormalizer.words(name)));
+        mergeIfLarge();
+    }
+    
+    public synchronized void remove(int id) {
+        overlay.remove(id);
+        if (Arrays.binarySearch(ids, id) >= 0) {
+            stale.add(id);
+        }
+        mergeIfLarge();
+    }
+    
+    // Current name for an ID, or null if it is not indexed
+    public synchronized String getName(int id) {
+        OverlayName added = overlay.get(id);
+        if (added != null) {
+            return added.name;
+        }
+        return stale.contains(id) ? null : baseName(id);
+    }
+    
+    public synchronized int size() {
+        // Overlay names that replace a base name are also counted in stale
+        return ids.length - stale.size() + overlay.size();
+    }
+    
+    // IDs of up to limit names matching every word of the text as a word prefix, best match first.
+    // Names with a word equal to the typed word rank first, then earlier word positions,
+    // then shorter names, then lower IDs.
+    public synchronized int[] search(String text, int limit) {
+        String[] query = NameNormalizer.words(text);
+        if (query.length == 0 || limit <= 0) {
+            return new int[0];
+        }
+        
+        // Scan the range of the query word with the fewest matching words
+        String primary = null;
+        int from = 0;
+        int to = 0;
+        for (String word : query) {
+            int low = lowerBound(words, word);
+            int high = lowerBound(words, word + Character.MAX_VALUE);
+            if (primary == null || high - low < to - from) {
+                primary = word;
+                from = low;
+                to = high;
+            }
+        }
+        
+        PriorityQueue<Long> best = new PriorityQueue<>(limit + 1, Collections.reverseOrder());
+        for (int i = from; i < to; i++) {
+            int row = wordRows[i];
+            int id = ids[row];
+            if (!stale.isEmpty() && stale.contains(id)) {
+                continue;
+            }
+            long score = score(words[i].length() == primary.length(), wordInfo[i], id);
+            if (isCandidate(best, limit, score)
+                    && (query.length == 1 || matchesAll(nameWords, wordStart[row], wordStart[row + 1], query))) {
+                offer(best, limit, score);
+            }
+        }
+        
+        for (Map.Entry<Integer, OverlayName> entry : overlay.entrySet()) {
+            String[] nameWords = entry.getValue().words;
+            int length = Math.min(entry.getValue().name.length(), MAX_NAME_LENGTH);
+            for (int position = 0; position < nameWords.length; position++) {
+                if (nameWords[position].startsWith(primary)) {
+                    long score = score(nameWords[position].length() == primary.length(),
+                            Math.min(position, MAX_WORD_POSITION) << 16 | length, entry.getKey());
+                    if (isCandidate(best, limit, score) && matchesAll(nameWords, 0, nameWords.length, query)) {
+                        offer(best, limit, score);
+                    }
+                }
+            }
+        }
+        
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = (int) best.poll().longValue();
+        }
+        return result;
+    }
+    
+    // Lower scores rank first; the ID sits in the low 32 bits
+    private static long score(boolean exactWord, int info, int id) {
+        return (exactWord ? 0L : 1L << 56) | ((long) info << 32) | (id & 0xFFFFFFFFL);
+    }
+    
+    private static boolean isCandidate(PriorityQueue<Long> best, int limit, long score) {
+        return best.size() < limit || score < best.peek();
+    }
+    
+    // Keep the best score per ID; a name with two matching words must not be listed twice
+    private static void offer(PriorityQueue<Long> best, int limit, long score) {
+        int id = (int) score;
+        for (Long existing : best) {
+            if ((int) existing.longValue() == id) {
+                if (score >= existing) {
+                    return;
+                }
+                best.remove(existing);
+                break;
+            }
+        }
+        best.add(score);
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+    
+    // Every query word is a prefix of one of the name's words, found in nameWords[from] up to nameWords[to]
+    private static boolean matchesAll(String[] nameWords, int from, int to, String[] query) {
+        for (String word : query) {
+            boolean found = false;
+            for (int i = from; i < to; i++) {
+                if (nameWords[i].startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private String baseName(int id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? names[index] : null;
+    }
+    
+    private static int lowerBound(String[] sorted, String key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private void mergeIfLarge() {
+        int changes = Math.max(overlay.size(), stale.size());
+        if (changes < Math.max(MIN_MERGE_SIZE, ids.length / 16)) {
+            return;
+        }
+        
+        int[] mergedIds = new int[ids.length - stale.size() + overlay.size()];
+        String[] mergedNames = new String[mergedIds.length];
+        int count = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (!stale.contains(ids[i])) {
+                mergedIds[count] = ids[i];
+                mergedNames[count++] = names[i];
+            }
+        }
+        for (Map.Entry<Integer, OverlayName> entry : overlay.entrySet()) {
+            mergedIds[count] = entry.getKey();
+            mergedNames[count++] = entry.getValue().name;
+        }
+        rebuild(Arrays.copyOf(mergedIds, count), Arrays.copyOf(mergedNames, count));
+        overlay.clear();
+        stale.clear();
+    }
+    
+    // Build the base arrays. Equal words share one String, which matters for common first names,
+    // and words are sorted as (word rank, entry) longs so the sort needs no comparator.
+    private void rebuild(int[] newIds, String[] newNames) {
+        long[] byId = new long[newIds.length];
+        for (int i = 0; i < byId.length; i++) {
+            byId[i] = ((long) newIds[i] << 32) | i;
+        }
+        Arrays.sort(byId);
+        
+        int[] sortedIds = new int[byId.length];
+        String[] sortedNames = new String[byId.length];
+        int[] starts = new int[byId.length + 1];
+        List<String> flatWords = new ArrayList<>();
+        Map<String, String> shared = new HashMap<>();
+        for (int row = 0; row < byId.length; row++) {
+            int index = (int) byId[row];
+            sortedIds[row] = newIds[index];
+            sortedNames[row] = newNames[index];
+            starts[row] = flatWords.size();
+            for (String word : NameNormalizer.words(sortedNames[row])) {
+                flatWords.add(shared.computeIfAbsent(word, w -> w));
+            }
+        }
+        starts[byId.length] = flatWords.size();
+        String[] flat = flatWords.toArray(new String[0]);
+        
+        String[] distinct = shared.keySet().toArray(new String[0]);
+        Arrays.sort(distinct);
+        Map<String, Integer> rank = new IdentityHashMap<>();
+        for (int i = 0; i < distinct.length; i++) {
+            rank.put(shared.get(distinct[i]), i);
+        }
+        
+        long[] entries = new long[flat.length];
+        for (int i = 0; i < flat.length; i++) {
+            entries[i] = ((long) rank.get(flat[i]) << 32) | i;
+        }
+        Arrays.sort(entries);
+        
+        String[] sortedWords = new String[entries.length];
+        int[] sortedRows = new int[entries.length];
+        int[] sortedInfo = new int[entries.length];
+        int row = 0;
+        int[] entryRows = new int[flat.length];
+        for (int i = 0; i < flat.length; i++) {
+            while (starts[row + 1] <= i) {
+                row++;
+            }
+            entryRows[i] = row;
+        }
+        for (int i = 0; i < entries.length; i++) {
+            int entry = (int) entries[i];
+            int entryRow = entryRows[entry];
+            sortedWords[i] = flat[entry];
+            sortedRows[i] = entryRow;
+            sortedInfo[i] = Math.min(entry - starts[entryRow], MAX_WORD_POSITION) << 16
+                    | Math.min(sortedNames[entryRow].length(), MAX_NAME_LENGTH);
+        }
+        
+        ids = sortedIds;
+        names = sortedNames;
+        nameWords = flat;
+        wordStart = starts;
+        words = sortedWords;
+        wordRows = sortedRows;
+        wordInfo = sortedInfo;
+    }
+    
+    // Approximate heap used by the index, assuming compressed references (4 bytes each)
+    public synchronized long estimateMemoryBytes() {
+        long bytes = arrayBytes(ids.length, 4) + arrayBytes(names.length, 4)
+                + arrayBytes(nameWords.length, 4) + arrayBytes(wordStart.length, 4)
+                + arrayBytes(words.length, 4) + arrayBytes(wordRows.length, 4) + arrayBytes(wordInfo.length, 4);
+        
+        // Count each String instance once; equal words share an instance
+        Map<String, Boolean> counted = new IdentityHashMap<>();
+        for (String name : names) {
+            if (counted.put(name, Boolean.TRUE) == null) {
+                bytes += stringBytes(name);
+            }
+        }
+        for (String word : words) {
+            if (counted.put(word, Boolean.TRUE) == null) {
+                bytes += stringBytes(word);
+            }
+        }
+        
+        // Overlay: map entry, boxed key and word array per name
+        for (OverlayName added : overlay.values()) {
+            bytes += 32 + 16 + 24 + stringBytes(added.name) + arrayBytes(added.words.length, 4);
+            for (String word : added.words) {
+                bytes += stringBytes(word);
+            }
+        }
+        return bytes + stale.size() * 48L;
+    }
+    
+    private static long arrayBytes(int length, int elementBytes) {
+        return align(16 + (long) length * elementBytes);
+    }
+    
+    // String object plus its byte array; Latin-1 text takes one byte per char, other text two
+    private static long stringBytes(String s) {
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) {
+            latin1 = s.charAt(i) <= 0xFF;
+        }
+        return 24 + arrayBytes(s.length(), latin1 ? 1 : 2);
+    }
+    
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        Set<String> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(Arrays.asList(words));
+        return String.format("%s: %d names, %d words (%d distinct), about %.1f KB",
+                description, size(), words.length, distinct.size(), estimateMemoryBytes() / 1024.0);
+    }
+}
@@ -0,0 +1,139 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned schema migrations for the SQLite database
+ * Each migration runs once, in version order, inside its own transaction and is recorded in schema_version
+ */
+public class SchemaMigrator {
+    private final List<Migration> migrations = new ArrayList<>();
+    
+    // Schema change applied by a migration
+    public interface MigrationStep {
+        void apply(Connection connection) throws SQLException;
+    }
+    
+    private static class Migration {
+        final int version;
+        final String description;
+        final MigrationStep step;
+        
+        Migration(int version, String description, MigrationStep step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+    
+    // Register a migration; versions must be added in increasing order
+    public SchemaMigrator add(int version, String description, MigrationStep step) {
+        if (!migrations.isEmpty() && version <= migrations.get(migrations.size() - 1).version) {
+            throw new IllegalArgumentException("Migration versions must increase: " + version);
+        }
+        migrations.add(new Migration(version, description, step));
+        return this;
+    }
+    
+    // Register a migration made of plain SQL statements
+    public SchemaMigrator addSql(int version, String description, String... statements) {
+        return add(version, description, connection -> {
+            try (Statement stmt = connection.createStatement()) {
+                for (String sql : statements) {
+                    stmt.execute(sql);
+                }
+            }
+        });
+    }
+    
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+    
+    // Highest applied version, 0 for a database that was never migrated
+    public int getCurrentVersion(Connection connection) throws SQLException {
+        createVersionTable(connection);
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    // Apply every pending migration and return how many were applied
+    public int migrate(Connection connection) throws SQLException {
+        return migrate(connection, Integer.MAX_VALUE);
+    }
+    
+    // Apply pending migrations up to and including targetVersion.
+    // Foreign keys are switched off while tables are rebuilt and checked before they are switched back on.
+    public int migrate(Connection connection, int targetVersion) throws SQLException {
+        int current = getCurrentVersion(connection);
+        int applied = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = OFF");
+            for (Migration migration : migrations) {
+                if (migration.version <= current || migration.version > targetVersion) {
+                    continue;
+                }
+                
+                connection.setAutoCommit(false);
+                try {
+                    migration.step.apply(connection);
+                    checkForeignKeys(connection, migration);
+                    recordVersion(connection, migration);
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw new SQLException("Migration " + migration.version + " (" + migration.description +
+                            ") failed: " + e.getMessage(), e);
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+                
+                System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+                applied++;
+            }
+        } finally {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA foreign_keys = ON");
+            }
+        }
+        
+        return applied;
+    }
+    
+    private static void createVersionTable(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INTEGER PRIMARY KEY, " +
+                    "description TEXT NOT NULL, " +
+                    "applied_at TEXT NOT NULL DEFAULT CURRENT_TIMESTAMP" +
+                    ")");
+        }
+    }
+    
+    private static void checkForeignKeys(Connection connection, Migration migration) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA foreign_key_check")) {
+            if (rs.next()) {
+                throw new SQLException("Foreign key violation in table " + rs.getString(1) +
+                        " after migration " + migration.version);
+            }
+        }
+    }
+    
+    private static void recordVersion(Connection connection, Migration migration) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, description) VALUES (?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.executeUpdate();
+        }
+    }
+}
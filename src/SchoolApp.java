@@ -1,54 +1,85 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.sql.SQLException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Main GUI application for School Management System
  * Demonstrates Swing GUI components and event handling
  */
 public class SchoolApp extends JFrame {
+    // -Dschool.syncDb=true runs database calls on the event thread as before, for comparison;
+    // -Dschool.edtMonitor=true prints event thread stall statistics every few seconds and on exit
+    private static final boolean SYNC_DATABASE = Boolean.getBoolean("school.syncDb");
+    private static final boolean MONITOR_EDT = Boolean.getBoolean("school.edtMonitor");
+    private static final int MONITOR_REPORT_MS = 10_000;
+    
+    // Larger change batches (e.g. a bulk import) reload the views instead of applying each row
+    private static final int MAX_INCREMENTAL_CHANGES = 200;
+    
     private SchoolDB database;
+    private final DatabaseTaskRunner dbTasks = new DatabaseTaskRunner(SYNC_DATABASE);
+    private final EdtStallMonitor stallMonitor = new EdtStallMonitor();
     private JTabbedPane tabbedPane;
+    private JMenuItem refreshItem;
+    private JLabel openingLabel;
+    
+    // Status bar - shows while database work is running
+    private JLabel statusLabel;
+    private JProgressBar progressBar;
     
     // Student tab components
     private JTextField studentIdField, studentNameField, studentAgeField, studentGradeField;
     private JTable studentsTable;
-    private DefaultTableModel studentsTableModel;
+    private PagedTableModel<Student> studentsTableModel;
+    private LiveSearch<Student> studentSearch;
     
     // Teacher tab components
     private JTextField teacherIdField, teacherNameField, teacherAgeField, teacherSubjectField;
     private JTable teachersTable;
-    private DefaultTableModel teachersTableModel;
+    private PagedTableModel<Teacher> teachersTableModel;
+    private LiveSearch<Teacher> teacherSearch;
     
     // Course tab components
     private JTextField courseIdField, courseTitleField, courseCapacityField;
-    private JComboBox<String> courseTeacherCombo;
+    private EntityPicker<Teacher> courseTeacherPicker;
     private JTable coursesTable;
-    private DefaultTableModel coursesTableModel;
+    private PagedTableModel<Course> coursesTableModel;
+    private LiveSearch<Course> courseSearch;
     
     // Enrollment tab components
-    private JComboBox<String> enrollStudentCombo, enrollCourseCombo;
+    private EntityPicker<Student> enrollStudentPicker;
+    private EntityPicker<Course> enrollCoursePicker;
     
     public SchoolApp() {
-        initializeDatabase();
         initializeGUI();
-        loadData();
+        startStallMonitor();
+        initializeDatabase();
     }
     
+    // Open the database in the background: connecting may wait on a locked file and the schema
+    // migrations can rebuild whole tables. The tabs are only built once it is open.
     private void initializeDatabase() {
-        try {
-            database = new SchoolDB();
-        } catch (SQLException e) {
+        dbTasks.submit(() -> {
+            SchoolDB opened = new SchoolDB();
+            opened.loadNameIndexes();
+            return opened;
+        }, opened -> {
+            database = opened;
+            showTabs();
+            database.addChangeListener(this::applyChanges, SwingUtilities::invokeLater);
+            loadData();
+        }, e -> {
             JOptionPane.showMessageDialog(this, 
                 "Failed to connect to database: " + e.getMessage(), 
                 "Database Error", 
                 JOptionPane.ERROR_MESSAGE);
             System.exit(1);
-        }
+        });
     }
     
     private void initializeGUI() {
@@ -56,6 +87,21 @@ public class SchoolApp extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
         
+        // Placeholder until the database is open; the status bar shows the progress
+        openingLabel = new JLabel("Opening database...", SwingConstants.CENTER);
+        add(openingLabel, BorderLayout.CENTER);
+        add(createStatusBar(), BorderLayout.SOUTH);
+        
+        // Add menu bar
+        setJMenuBar(createMenuBar());
+        
+        // Set window properties
+        setSize(800, 600);
+        setLocationRelativeTo(null);
+        setVisible(true);
+    }
+    
+    private void showTabs() {
         // Create tabbed pane
         tabbedPane = new JTabbedPane();
         
@@ -65,27 +111,27 @@ public class SchoolApp extends JFrame {
         tabbedPane.addTab("Courses", createCoursePanel());
         tabbedPane.addTab("Enrollment", createEnrollmentPanel());
         
+        remove(openingLabel);
         add(tabbedPane, BorderLayout.CENTER);
-        
-        // Add menu bar
-        setJMenuBar(createMenuBar());
-        
-        // Set window properties
-        setSize(800, 600);
-        setLocationRelativeTo(null);
-        setVisible(true);
+        refreshItem.setEnabled(true);
+        revalidate();
+        repaint();
     }
     
     private JMenuBar createMenuBar() {
         JMenuBar menuBar = new JMenuBar();
         
         JMenu fileMenu = new JMenu("File");
-        JMenuItem refreshItem = new JMenuItem("Refresh Data");
+        refreshItem = new JMenuItem("Refresh Data");
+        refreshItem.setEnabled(false); // until the database is open
         JMenuItem exitItem = new JMenuItem("Exit");
         
-        refreshItem.addActionListener(e -> loadData());
+        refreshItem.addActionListener(traced("Refresh data", null, e -> loadData()));
         exitItem.addActionListener(e -> {
-            database.closeConnection();
+            dbTasks.shutdown();
+            if (database != null) {
+                database.closeConnection();
+            }
             System.exit(0);
         });
         
@@ -95,7 +141,7 @@ public class SchoolApp extends JFrame {
         
         JMenu helpMenu = new JMenu("Help");
         JMenuItem aboutItem = new JMenuItem("About");
-        aboutItem.addActionListener(e -> showAboutDialog());
+        aboutItem.addActionListener(traced("About", null, e -> showAboutDialog()));
         helpMenu.add(aboutItem);
         
         menuBar.add(fileMenu);
@@ -104,6 +150,46 @@ public class SchoolApp extends JFrame {
         return menuBar;
     }
     
+    private JPanel createStatusBar() {
+        JPanel statusBar = new JPanel(new BorderLayout(10, 0));
+        statusBar.setBorder(BorderFactory.createEmptyBorder(2, 5, 2, 5));
+        
+        statusLabel = new JLabel("Ready");
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        
+        statusBar.add(statusLabel, BorderLayout.CENTER);
+        statusBar.add(progressBar, BorderLayout.EAST);
+        
+        dbTasks.setActivityListener(pending -> {
+            progressBar.setVisible(pending > 0);
+            statusLabel.setText(pending > 0 ? "Working... (" + pending + " pending)" : "Ready");
+        });
+        
+        return statusBar;
+    }
+    
+    private void startStallMonitor() {
+        if (!MONITOR_EDT) {
+            return;
+        }
+        
+        stallMonitor.start();
+        String mode = SYNC_DATABASE ? "synchronous" : "background";
+        new Timer(MONITOR_REPORT_MS, e -> System.out.println("[" + mode + " database] " + stallMonitor)).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                System.out.println("[" + mode + " database] final " + stallMonitor)));
+    }
+    
+    private static JPanel createSearchBar(JTextField searchField, JLabel searchStatus) {
+        JPanel searchBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        searchBar.add(new JLabel("Search:"));
+        searchBar.add(searchField);
+        searchBar.add(searchStatus);
+        return searchBar;
+    }
+    
     private JPanel createStudentPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         
@@ -143,22 +229,28 @@ public class SchoolApp extends JFrame {
         // Add button
         gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2;
         JButton addStudentBtn = new JButton("Add Student");
-        addStudentBtn.addActionListener(new AddStudentListener());
+        addStudentBtn.addActionListener(traced("Add student", ChangeEvent.Entity.STUDENT, new AddStudentListener()));
         inputPanel.add(addStudentBtn, gbc);
         
         panel.add(inputPanel, BorderLayout.NORTH);
         
         // Students table
         String[] columnNames = {"ID", "Name", "Age", "Grade Level", "Actions"};
-        studentsTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 4; // Only Actions column is editable
-            }
-        };
+        studentsTableModel = new PagedTableModel<>(ChangeEvent.Entity.STUDENT, columnNames, database::getStudentIds, database::getStudentsAfter,
+                Student::getId, SchoolApp::studentColumn, dbTasks);
         studentsTable = new JTable(studentsTableModel);
         JScrollPane scrollPane = new JScrollPane(studentsTable);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        // Search bar above the table
+        JTextField searchField = new JTextField(20);
+        JLabel searchStatus = new JLabel(" ");
+        studentSearch = new LiveSearch<>("search:students", searchField, searchStatus, studentsTable, studentsTableModel,
+                SchoolApp::studentColumn, database::streamStudentSearch, dbTasks);
+        
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(createSearchBar(searchField, searchStatus), BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(tablePanel, BorderLayout.CENTER);
         
         return panel;
     }
@@ -202,22 +294,28 @@ public class SchoolApp extends JFrame {
         // Add button
         gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2;
         JButton addTeacherBtn = new JButton("Add Teacher");
-        addTeacherBtn.addActionListener(new AddTeacherListener());
+        addTeacherBtn.addActionListener(traced("Add teacher", ChangeEvent.Entity.TEACHER, new AddTeacherListener()));
         inputPanel.add(addTeacherBtn, gbc);
         
         panel.add(inputPanel, BorderLayout.NORTH);
         
         // Teachers table
         String[] columnNames = {"ID", "Name", "Age", "Subject", "Actions"};
-        teachersTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 4; // Only Actions column is editable
-            }
-        };
+        teachersTableModel = new PagedTableModel<>(ChangeEvent.Entity.TEACHER, columnNames, database::getTeacherIds, database::getTeachersAfter,
+                Teacher::getId, SchoolApp::teacherColumn, dbTasks);
         teachersTable = new JTable(teachersTableModel);
         JScrollPane scrollPane = new JScrollPane(teachersTable);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        // Search bar above the table
+        JTextField searchField = new JTextField(20);
+        JLabel searchStatus = new JLabel(" ");
+        teacherSearch = new LiveSearch<>("search:teachers", searchField, searchStatus, teachersTable, teachersTableModel,
+                SchoolApp::teacherColumn, database::streamTeacherSearch, dbTasks);
+        
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(createSearchBar(searchField, searchStatus), BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(tablePanel, BorderLayout.CENTER);
         
         return panel;
     }
@@ -253,30 +351,37 @@ public class SchoolApp extends JFrame {
         
         // Teacher
         gbc.gridx = 0; gbc.gridy = 3;
-        inputPanel.add(new JLabel("Teacher:"), gbc);
+        inputPanel.add(new JLabel("Teacher (optional):"), gbc);
         gbc.gridx = 1;
-        courseTeacherCombo = new JComboBox<>();
-        inputPanel.add(courseTeacherCombo, gbc);
+        courseTeacherPicker = new EntityPicker<>("pick:courseTeacher", ChangeEvent.Entity.TEACHER, database::suggestTeachers,
+                SchoolApp::teacherLabel, Teacher::getId, dbTasks);
+        inputPanel.add(courseTeacherPicker, gbc);
         
         // Add button
         gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2;
         JButton addCourseBtn = new JButton("Add Course");
-        addCourseBtn.addActionListener(new AddCourseListener());
+        addCourseBtn.addActionListener(traced("Add course", ChangeEvent.Entity.COURSE, new AddCourseListener()));
         inputPanel.add(addCourseBtn, gbc);
         
         panel.add(inputPanel, BorderLayout.NORTH);
         
         // Courses table
         String[] columnNames = {"Course ID", "Title", "Teacher", "Max Capacity", "Actions"};
-        coursesTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 4; // Only Actions column is editable
-            }
-        };
+        coursesTableModel = new PagedTableModel<>(ChangeEvent.Entity.COURSE, columnNames, database::getCourseIds, database::getCoursesAfter,
+                Course::getCourseId, SchoolApp::courseColumn, dbTasks);
         coursesTable = new JTable(coursesTableModel);
         JScrollPane scrollPane = new JScrollPane(coursesTable);
-        panel.add(scrollPane, BorderLayout.CENTER);
+        
+        // Search bar above the table
+        JTextField searchField = new JTextField(20);
+        JLabel searchStatus = new JLabel(" ");
+        courseSearch = new LiveSearch<>("search:courses", searchField, searchStatus, coursesTable, coursesTableModel,
+                SchoolApp::courseColumn, database::streamCourseSearch, dbTasks);
+        
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(createSearchBar(searchField, searchStatus), BorderLayout.NORTH);
+        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(tablePanel, BorderLayout.CENTER);
         
         return panel;
     }
@@ -290,118 +395,165 @@ public class SchoolApp extends JFrame {
         gbc.gridx = 0; gbc.gridy = 0;
         panel.add(new JLabel("Select Student:"), gbc);
         gbc.gridx = 1;
-        enrollStudentCombo = new JComboBox<>();
-        panel.add(enrollStudentCombo, gbc);
+        enrollStudentPicker = new EntityPicker<>("pick:enrollStudent", ChangeEvent.Entity.STUDENT, database::suggestStudents,
+                SchoolApp::studentLabel, Student::getId, dbTasks);
+        panel.add(enrollStudentPicker, gbc);
         
         // Course selection
         gbc.gridx = 0; gbc.gridy = 1;
         panel.add(new JLabel("Select Course:"), gbc);
         gbc.gridx = 1;
-        enrollCourseCombo = new JComboBox<>();
-        panel.add(enrollCourseCombo, gbc);
+        enrollCoursePicker = new EntityPicker<>("pick:enrollCourse", ChangeEvent.Entity.COURSE, database::suggestCourses,
+                SchoolApp::courseLabel, Course::getCourseId, dbTasks);
+        panel.add(enrollCoursePicker, gbc);
         
         // Enroll button
         gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 2;
         JButton enrollBtn = new JButton("Enroll Student");
-        enrollBtn.addActionListener(new EnrollStudentListener());
+        enrollBtn.addActionListener(traced("Enroll student", ChangeEvent.Entity.ENROLLMENT, new EnrollStudentListener()));
         panel.add(enrollBtn, gbc);
         
         return panel;
     }
     
+    // Reload every table. The tables only reload their row IDs and fetch visible pages
+    // on demand; a newer reload supersedes one still in progress.
     private void loadData() {
-        loadStudents();
-        loadTeachers();
-        loadCourses();
-        updateComboBoxes();
+        studentsTableModel.refresh();
+        teachersTableModel.refresh();
+        coursesTableModel.refresh();
     }
     
-    private void loadStudents() {
-        try {
-            List<Student> students = database.getStudents();
-            studentsTableModel.setRowCount(0);
+    // Committed changes from the database, delivered on the event thread
+    private void applyChanges(List<ChangeEvent> changes) {
+        SchoolEvents.UserAction event = SchoolEvents.userAction("Apply database changes", null);
+        if (changes.size() > MAX_INCREMENTAL_CHANGES) {
+            loadData();
+        } else {
+            Set<ChangeEvent.Entity> changed = EnumSet.noneOf(ChangeEvent.Entity.class);
+            for (ChangeEvent change : changes) {
+                changed.add(change.getEntity());
+                applyPickerChange(change);
+            }
             
-            for (Student student : students) {
-                Object[] row = {
-                    student.getId(),
-                    student.getName(),
-                    student.getAge(),
-                    student.getGradeLevel(),
-                    "Edit|Delete"
-                };
-                studentsTableModel.addRow(row);
+            if (changed.contains(ChangeEvent.Entity.STUDENT)) {
+                studentsTableModel.applyChanges(changes);
+            }
+            if (changed.contains(ChangeEvent.Entity.TEACHER)) {
+                teachersTableModel.applyChanges(changes);
+            }
+            if (changed.contains(ChangeEvent.Entity.COURSE)) {
+                coursesTableModel.applyChanges(changes);
+            }
+            // Course rows show their teacher's name
+            if (changed.contains(ChangeEvent.Entity.TEACHER)) {
+                coursesTableModel.reloadPages();
             }
-        } catch (SQLException e) {
-            showErrorDialog("Failed to load students: " + e.getMessage());
-        }
-    }
-    
-    private void loadTeachers() {
-        try {
-            List<Teacher> teachers = database.getTeachers();
-            teachersTableModel.setRowCount(0);
             
-            for (Teacher teacher : teachers) {
-                Object[] row = {
-                    teacher.getId(),
-                    teacher.getName(),
-                    teacher.getAge(),
-                    teacher.getSubject(),
-                    "Edit|Delete"
-                };
-                teachersTableModel.addRow(row);
+            // Search results are re-run rather than patched, since a change can move a row in the ranking
+            if (changed.contains(ChangeEvent.Entity.STUDENT)) {
+                studentSearch.refresh();
+            }
+            if (changed.contains(ChangeEvent.Entity.TEACHER)) {
+                teacherSearch.refresh();
+            }
+            if (changed.contains(ChangeEvent.Entity.COURSE) || changed.contains(ChangeEvent.Entity.TEACHER)) {
+                courseSearch.refresh();
             }
-        } catch (SQLException e) {
-            showErrorDialog("Failed to load teachers: " + e.getMessage());
         }
+        event.finish();
     }
     
-    private void loadCourses() {
-        try {
-            List<Course> courses = database.getCourses();
-            coursesTableModel.setRowCount(0);
-            
-            for (Course course : courses) {
-                Object[] row = {
-                    course.getCourseId(),
-                    course.getTitle(),
-                    course.getTeacher() != null ? course.getTeacher().getName() : "Not assigned",
-                    course.getMaxCapacity(),
-                    "Edit|Delete"
-                };
-                coursesTableModel.addRow(row);
+    // Record a listener's time on the event thread as a flight recorder event. The database work
+    // it submits shows up separately, as database call and view load events.
+    private static ActionListener traced(String action, ChangeEvent.Entity entity, ActionListener listener) {
+        return e -> {
+            SchoolEvents.UserAction event = SchoolEvents.userAction(action, entity);
+            try {
+                listener.actionPerformed(e);
+            } finally {
+                event.finish();
             }
-        } catch (SQLException e) {
-            showErrorDialog("Failed to load courses: " + e.getMessage());
+        };
+    }
+    
+    // Apply a single change to the pickers showing that entity
+    private void applyPickerChange(ChangeEvent change) {
+        int id = change.getId();
+        switch (change.getEntity()) {
+            case STUDENT:
+                applyPickerChange(enrollStudentPicker, change, () -> database.getStudentById(id));
+                break;
+            case TEACHER:
+                applyPickerChange(courseTeacherPicker, change, () -> database.getTeacherById(id));
+                break;
+            case COURSE:
+                applyPickerChange(enrollCoursePicker, change, () -> database.getCourseById(id));
+                break;
+            case ENROLLMENT:
+                break; // no view lists enrollments
         }
     }
     
-    private void updateComboBoxes() {
-        // Update teacher combo box
-        courseTeacherCombo.removeAllItems();
-        courseTeacherCombo.addItem("No Teacher");
-        
-        // Update enrollment combo boxes
-        enrollStudentCombo.removeAllItems();
-        enrollCourseCombo.removeAllItems();
+    // Keep a picker's selection current: cleared when the entity is deleted, relabelled when it changes
+    private <T> void applyPickerChange(EntityPicker<T> picker, ChangeEvent change, DatabaseTaskRunner.Task<T> reload) {
+        int id = change.getId();
+        if (!picker.isSelected(id)) {
+            return;
+        }
+        if (change.getKind() == ChangeEvent.Kind.DELETE) {
+            picker.setSelected(null);
+            return;
+        }
         
-        try {
-            List<Teacher> teachers = database.getTeachers();
-            for (Teacher teacher : teachers) {
-                courseTeacherCombo.addItem(teacher.getId() + " - " + teacher.getName());
-            }
-            
-            List<Student> students = database.getStudents();
-            for (Student student : students) {
-                enrollStudentCombo.addItem(student.getId() + " - " + student.getName());
-            }
-            
-            List<Course> courses = database.getCourses();
-            for (Course course : courses) {
-                enrollCourseCombo.addItem(course.getCourseId() + " - " + course.getTitle());
+        dbTasks.submit(reload, entity -> {
+            if (picker.isSelected(id)) {
+                picker.setSelected(entity);
             }
-        } catch (SQLException e) {
-            showErrorDialog("Failed to update combo boxes: " + e.getMessage());
+        }, e -> showErrorDialog("Failed to update selection: " + e.getMessage()));
+    }
+    
+    // Picker labels
+    private static String studentLabel(Student student) {
+        return student.getId() + " - " + student.getName();
+    }
+    
+    private static String teacherLabel(Teacher teacher) {
+        return teacher.getId() + " - " + teacher.getName() + " (" + teacher.getSubject() + ")";
+    }
+    
+    private static String courseLabel(Course course) {
+        return course.getCourseId() + " - " + course.getTitle();
+    }
+    
+    // Table cells, shared by the full tables and the search results
+    private static Object studentColumn(Student student, int column) {
+        switch (column) {
+            case 0: return student.getId();
+            case 1: return student.getName();
+            case 2: return student.getAge();
+            case 3: return student.getGradeLevel();
+            default: return "Edit|Delete";
+        }
+    }
+    
+    private static Object teacherColumn(Teacher teacher, int column) {
+        switch (column) {
+            case 0: return teacher.getId();
+            case 1: return teacher.getName();
+            case 2: return teacher.getAge();
+            case 3: return teacher.getSubject();
+            default: return "Edit|Delete";
+        }
+    }
+    
+    private static Object courseColumn(Course course, int column) {
+        switch (column) {
+            case 0: return course.getCourseId();
+            case 1: return course.getTitle();
+            case 2: return course.getTeacher() != null ? course.getTeacher().getName() : "Not assigned";
+            case 3: return course.getMaxCapacity();
+            default: return "Edit|Delete";
         }
     }
     
@@ -442,21 +594,19 @@ public class SchoolApp extends JFrame {
                 
                 Student student = new Student(id, name, age, gradeLevel);
                 
-                if (database.insertStudent(student)) {
-                    showSuccessDialog("Student added successfully!");
-                    clearStudentFields();
-                    loadStudents();
-                    updateComboBoxes();
-                } else {
-                    showErrorDialog("Failed to add student");
-                }
-                
+                dbTasks.submitWrite(() -> database.insertStudent(student), inserted -> {
+                    if (inserted) {
+                        showSuccessDialog("Student added successfully!");
+                        clearStudentFields();
+                    } else {
+                        showErrorDialog("Failed to add student");
+                    }
+                }, ex -> showErrorDialog("Database error: " + ex.getMessage()));
+            
             } catch (NumberFormatException ex) {
                 showErrorDialog("Please enter valid numbers for ID, age, and grade level");
             } catch (IllegalArgumentException ex) {
                 showErrorDialog(ex.getMessage());
-            } catch (SQLException ex) {
-                showErrorDialog("Database error: " + ex.getMessage());
             }
         }
     }
@@ -476,21 +626,19 @@ public class SchoolApp extends JFrame {
                 
                 Teacher teacher = new Teacher(id, name, age, subject);
                 
-                if (database.insertTeacher(teacher)) {
-                    showSuccessDialog("Teacher added successfully!");
-                    clearTeacherFields();
-                    loadTeachers();
-                    updateComboBoxes();
-                } else {
-                    showErrorDialog("Failed to add teacher");
-                }
-                
+                dbTasks.submitWrite(() -> database.insertTeacher(teacher), inserted -> {
+                    if (inserted) {
+                        showSuccessDialog("Teacher added successfully!");
+                        clearTeacherFields();
+                    } else {
+                        showErrorDialog("Failed to add teacher");
+                    }
+                }, ex -> showErrorDialog("Database error: " + ex.getMessage()));
+            
             } catch (NumberFormatException ex) {
                 showErrorDialog("Please enter valid numbers for ID and age");
             } catch (IllegalArgumentException ex) {
                 showErrorDialog(ex.getMessage());
-            } catch (SQLException ex) {
-                showErrorDialog("Database error: " + ex.getMessage());
             }
         }
     }
@@ -509,31 +657,22 @@ public class SchoolApp extends JFrame {
                 
                 Course course = new Course(courseId, title, maxCapacity);
                 
-                // Set teacher if selected
-                String selectedTeacher = (String) courseTeacherCombo.getSelectedItem();
-                if (selectedTeacher != null && !selectedTeacher.equals("No Teacher")) {
-                    int teacherId = Integer.parseInt(selectedTeacher.split(" - ")[0]);
-                    Teacher teacher = database.getTeacherById(teacherId);
-                    if (teacher != null) {
-                        course.setTeacher(teacher);
-                    }
-                }
-                
-                if (database.insertCourse(course)) {
-                    showSuccessDialog("Course added successfully!");
-                    clearCourseFields();
-                    loadCourses();
-                    updateComboBoxes();
-                } else {
-                    showErrorDialog("Failed to add course");
-                }
+                // An empty teacher picker means no teacher
+                course.setTeacher(courseTeacherPicker.getSelected());
                 
+                dbTasks.submitWrite(() -> database.insertCourse(course), inserted -> {
+                    if (inserted) {
+                        showSuccessDialog("Course added successfully!");
+                        clearCourseFields();
+                    } else {
+                        showErrorDialog("Failed to add course");
+                    }
+                }, ex -> showErrorDialog("Database error: " + ex.getMessage()));
+            
             } catch (NumberFormatException ex) {
                 showErrorDialog("Please enter valid numbers for course ID and capacity");
             } catch (IllegalArgumentException ex) {
                 showErrorDialog(ex.getMessage());
-            } catch (SQLException ex) {
-                showErrorDialog("Database error: " + ex.getMessage());
             }
         }
     }
@@ -541,29 +680,24 @@ public class SchoolApp extends JFrame {
     private class EnrollStudentListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            try {
-                String selectedStudent = (String) enrollStudentCombo.getSelectedItem();
-                String selectedCourse = (String) enrollCourseCombo.getSelectedItem();
-                
-                if (selectedStudent == null || selectedCourse == null) {
-                    showErrorDialog("Please select both student and course");
-                    return;
-                }
-                
-                int studentId = Integer.parseInt(selectedStudent.split(" - ")[0]);
-                int courseId = Integer.parseInt(selectedCourse.split(" - ")[0]);
-                
-                if (database.enrollStudentInCourse(studentId, courseId)) {
+            Student student = enrollStudentPicker.getSelected();
+            Course course = enrollCoursePicker.getSelected();
+            
+            if (student == null || course == null) {
+                showErrorDialog("Please select both student and course");
+                return;
+            }
+            
+            int studentId = student.getId();
+            int courseId = course.getCourseId();
+            
+            dbTasks.submitWrite(() -> database.enrollStudentInCourse(studentId, courseId), enrolled -> {
+                if (enrolled) {
                     showSuccessDialog("Student enrolled successfully!");
                 } else {
                     showErrorDialog("Failed to enroll student");
                 }
-                
-            } catch (NumberFormatException ex) {
-                showErrorDialog("Invalid selection");
-            } catch (SQLException ex) {
-                showErrorDialog("Database error: " + ex.getMessage());
-            }
+            }, ex -> showErrorDialog("Database error: " + ex.getMessage()));
         }
     }
     
@@ -585,7 +719,7 @@ public class SchoolApp extends JFrame {
         courseIdField.setText("");
         courseTitleField.setText("");
         courseCapacityField.setText("");
-        courseTeacherCombo.setSelectedIndex(0);
+        courseTeacherPicker.setSelected(null);
     }
     
     // Event Listeners for Edit/Delete actions
@@ -620,33 +754,30 @@ public class SchoolApp extends JFrame {
                 );
                 
                 if (confirm == JOptionPane.YES_OPTION) {
-                    try {
-                        boolean success = false;
+                    dbTasks.submitWrite(() -> {
                         if (type.equals("student")) {
-                            success = database.deleteStudent(id);
+                            return database.deleteStudent(id);
                         } else if (type.equals("teacher")) {
-                            success = database.deleteTeacher(id);
+                            return database.deleteTeacher(id);
                         } else if (type.equals("course")) {
-                            success = database.deleteCourse(id);
+                            return database.deleteCourse(id);
                         }
-                        
+                        return false;
+                    }, success -> {
                         if (success) {
                             showSuccessDialog(type + " deleted successfully!");
-                            loadData();
                         } else {
                             showErrorDialog("Failed to delete " + type);
                         }
-                    } catch (SQLException ex) {
-                        showErrorDialog("Database error: " + ex.getMessage());
-                    }
+                    }, ex -> showErrorDialog("Database error: " + ex.getMessage()));
                 }
             }
         }
     }
     
+    // Loading a record for editing is keyed, so clicking Edit on another row cancels the previous load
     private void editStudent(int id) {
-        try {
-            Student student = database.getStudentById(id);
+        dbTasks.submit("edit", () -> database.getStudentById(id), student -> {
             if (student != null) {
                 studentIdField.setText(String.valueOf(student.getId()));
                 studentNameField.setText(student.getName());
@@ -654,14 +785,11 @@ public class SchoolApp extends JFrame {
                 studentGradeField.setText(String.valueOf(student.getGradeLevel()));
                 tabbedPane.setSelectedIndex(0); // Switch to Students tab
             }
-        } catch (SQLException e) {
-            showErrorDialog("Failed to load student: " + e.getMessage());
-        }
+        }, e -> showErrorDialog("Failed to load student: " + e.getMessage()));
     }
     
     private void editTeacher(int id) {
-        try {
-            Teacher teacher = database.getTeacherById(id);
+        dbTasks.submit("edit", () -> database.getTeacherById(id), teacher -> {
             if (teacher != null) {
                 teacherIdField.setText(String.valueOf(teacher.getId()));
                 teacherNameField.setText(teacher.getName());
@@ -669,35 +797,19 @@ public class SchoolApp extends JFrame {
                 teacherSubjectField.setText(teacher.getSubject());
                 tabbedPane.setSelectedIndex(1); // Switch to Teachers tab
             }
-        } catch (SQLException e) {
-            showErrorDialog("Failed to load teacher: " + e.getMessage());
-        }
+        }, e -> showErrorDialog("Failed to load teacher: " + e.getMessage()));
     }
     
     private void editCourse(int id) {
-        try {
-            List<Course> courses = database.getCourses();
-            for (Course course : courses) {
-                if (course.getCourseId() == id) {
-                    courseIdField.setText(String.valueOf(course.getCourseId()));
-                    courseTitleField.setText(course.getTitle());
-                    courseCapacityField.setText(String.valueOf(course.getMaxCapacity()));
-                    
-                    // Set teacher combo
-                    if (course.getTeacher() != null) {
-                        String teacherText = course.getTeacher().getId() + " - " + course.getTeacher().getName();
-                        courseTeacherCombo.setSelectedItem(teacherText);
-                    } else {
-                        courseTeacherCombo.setSelectedIndex(0);
-                    }
-                    
-                    tabbedPane.setSelectedIndex(2); // Switch to Courses tab
-                    break;
-                }
+        dbTasks.submit("edit", () -> database.getCourseById(id), course -> {
+            if (course != null) {
+                courseIdField.setText(String.valueOf(course.getCourseId()));
+                courseTitleField.setText(course.getTitle());
+                courseCapacityField.setText(String.valueOf(course.getMaxCapacity()));
+                courseTeacherPicker.setSelected(course.getTeacher());
+                tabbedPane.setSelectedIndex(2); // Switch to Courses tab
             }
-        } catch (SQLException e) {
-            showErrorDialog("Failed to load course: " + e.getMessage());
-        }
+        }, e -> showErrorDialog("Failed to load course: " + e.getMessage()));
     }
     
     public static void main(String[] args) {
@@ -1,6 +1,22 @@
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Database class for managing SQLite operations
@@ -8,19 +24,116 @@ import java.util.List;
  */
 public class SchoolDB {
     private static final String DB_URL = "jdbc:sqlite:school.db";
-    private Connection connection;
+    private static final int DEFAULT_READER_COUNT = 4;
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final int MAX_BUSY_RETRIES = 5;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int ENTITY_CACHE_SIZE = 1000;
+    private static final long ENTITY_CACHE_TTL_MS = 30_000;
     
-    // Constructor - establishes database connection
+    // Larger change batches (e.g. a bulk import) reload the name indexes instead of applying each row
+    private static final int MAX_NAME_INDEX_CHANGES = 1000;
+    
+    // Ranked full-text searches and their LIKE fallbacks, shared by the list and stream variants
+    private static final String STUDENT_SEARCH_SQL = "SELECT s.* FROM students_fts " +
+            "JOIN students s ON s.id = students_fts.rowid " +
+            "WHERE students_fts MATCH ? " +
+            "ORDER BY students_fts.rank, s.id";
+    private static final String STUDENT_LIKE_SQL = "SELECT * FROM students WHERE name LIKE ?";
+    private static final String TEACHER_SEARCH_SQL = "SELECT t.* FROM teachers_fts " +
+            "JOIN teachers t ON t.id = teachers_fts.rowid " +
+            "WHERE teachers_fts MATCH ? " +
+            "ORDER BY teachers_fts.rank, t.id";
+    private static final String TEACHER_LIKE_SQL = "SELECT * FROM teachers WHERE name LIKE ?";
+    private static final String COURSE_SEARCH_SQL = "SELECT c.course_id, c.title, c.max_capacity, " +
+            "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
+            "FROM courses_fts " +
+            "JOIN courses c ON c.course_id = courses_fts.rowid " +
+            "LEFT JOIN teachers t ON c.teacher_id = t.id " +
+            "WHERE courses_fts MATCH ? " +
+            "ORDER BY courses_fts.rank, c.course_id";
+    private static final String COURSE_LIKE_SQL = "SELECT c.course_id, c.title, c.max_capacity, " +
+            "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
+            "FROM courses c " +
+            "LEFT JOIN teachers t ON c.teacher_id = t.id " +
+            "WHERE c.title LIKE ?";
+    private static final String COURSE_BY_IDS_SQL = "SELECT c.course_id, c.title, c.max_capacity, " +
+            "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
+            "FROM courses c " +
+            "LEFT JOIN teachers t ON c.teacher_id = t.id " +
+            "WHERE c.course_id IN ";
+    
+    private final String dbUrl;
+    private final int readerCount;
+    private final DurabilityProfile profile;
+    private ConnectionPool pool;
+    private FuzzyNameIndex fuzzyIndex;
+    private boolean searchIndexAvailable;
+    
+    // Read-through caches for ID lookups; the TTL bounds staleness from writes by other processes
+    private final EntityCache<Student> studentCache =
+            new EntityCache<>(ENTITY_CACHE_SIZE, ENTITY_CACHE_TTL_MS, SchoolDB::copyStudent);
+    private final EntityCache<Teacher> teacherCache =
+            new EntityCache<>(ENTITY_CACHE_SIZE, ENTITY_CACHE_TTL_MS, SchoolDB::copyTeacher);
+    
+    // Transaction state; only touched by the thread holding the writer connection
+    private int transactionDepth;
+    private final List<Runnable> afterTransaction = new ArrayList<>();
+    private final List<ChangeEvent> pendingChanges = new ArrayList<>();
+    
+    // Committed changes are published here for views, caches and reports
+    private final ChangeBus changeBus = new ChangeBus();
+    
+    // In-memory name indexes for autocomplete, filled by loadNameIndexes()
+    private final PrefixIndex studentNames = new PrefixIndex("student names");
+    private final PrefixIndex teacherNames = new PrefixIndex("teacher names");
+    private final PrefixIndex courseTitles = new PrefixIndex("course titles");
+    private ExecutorService nameIndexExecutor;
+    
+    // Latency, error and row counts per public operation; off unless enabled in school.properties or over JMX.
+    // Each timed public method hands its body to a private do... method, and SchoolDB's own code calls
+    // those directly, so an operation used inside another one is not counted twice.
+    private final OperationMetrics metrics = new OperationMetrics();
+    
+    // Statements slower than a threshold, with their query plans; null while not logging
+    private SlowQueryLog slowQueryLog;
+    
+    // Work run by inTransaction()
+    public interface TransactionWork<T> {
+        T execute(SchoolDB db) throws SQLException;
+    }
+    
+    // Constructor - establishes database connection, using the durability profile, metrics and
+    // slow query log settings in school.properties (SAFE and neither log if there are none)
     public SchoolDB() throws SQLException {
+        this(DB_URL, DEFAULT_READER_COUNT, DurabilityProfile.fromConfig(DurabilityProfile.CONFIG_FILE));
+        metrics.configure(DurabilityProfile.CONFIG_FILE);
+        setSlowQueryLog(SlowQueryLog.fromConfig(DurabilityProfile.CONFIG_FILE, dbUrl));
+    }
+    
+    // Constructor - connects to the given database with a number of reader connections
+    // (0 readers sends every query through the single writer connection)
+    public SchoolDB(String dbUrl, int readerCount) throws SQLException {
+        this(dbUrl, readerCount, DurabilityProfile.SAFE);
+    }
+    
+    // Constructor - as above, with a durability/performance profile
+    public SchoolDB(String dbUrl, int readerCount, DurabilityProfile profile) throws SQLException {
+        this.dbUrl = dbUrl;
+        this.readerCount = readerCount;
+        this.profile = profile;
         connectDB();
         createTables();
+        metrics.register(dbUrl);
     }
     
     // Connect to SQLite database
     public void connectDB() throws SQLException {
         try {
             Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection(DB_URL);
+            pool = new ConnectionPool(dbUrl, readerCount, BUSY_TIMEOUT_MS, MAX_BUSY_RETRIES, profile);
+            fuzzyIndex = new FuzzyNameIndex(pool);
+            pool.setSlowQueryLog(slowQueryLog);
             System.out.println("Connected to SQLite database successfully.");
         } catch (ClassNotFoundException e) {
             throw new SQLException("SQLite JDBC driver not found", e);
@@ -61,27 +174,243 @@ public class SchoolDB {
                 "FOREIGN KEY (course_id) REFERENCES courses (course_id)" +
                 ")";
         
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createStudentsTable);
-            stmt.execute(createTeachersTable);
-            stmt.execute(createCoursesTable);
-            stmt.execute(createEnrollmentsTable);
-            System.out.println("Database tables created successfully.");
+        pool.write(connection -> {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(createStudentsTable);
+                stmt.execute(createTeachersTable);
+                stmt.execute(createCoursesTable);
+                stmt.execute(createEnrollmentsTable);
+                System.out.println("Database tables created successfully.");
+            }
+            return null;
+        });
+        
+        migrateSchema();
+        createSearchIndexes();
+    }
+    
+    // Bring an existing database up to the current schema version
+    private void migrateSchema() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator()
+            .addSql(1, "Foreign keys with cascading deletes",
+                // Courses keep existing when their teacher is deleted
+                "CREATE TABLE courses_new (" +
+                        "course_id INTEGER PRIMARY KEY, " +
+                        "title TEXT NOT NULL, " +
+                        "teacher_id INTEGER, " +
+                        "max_capacity INTEGER NOT NULL, " +
+                        "FOREIGN KEY (teacher_id) REFERENCES teachers (id) ON DELETE SET NULL" +
+                        ")",
+                "INSERT INTO courses_new (course_id, title, teacher_id, max_capacity) " +
+                        "SELECT course_id, title, " +
+                        "CASE WHEN teacher_id IN (SELECT id FROM teachers) THEN teacher_id END, " +
+                        "max_capacity FROM courses",
+                "DROP TABLE courses",
+                "ALTER TABLE courses_new RENAME TO courses",
+                // Enrollments go away with their student or course; orphaned rows are dropped
+                "CREATE TABLE enrollments_new (" +
+                        "student_id INTEGER NOT NULL, " +
+                        "course_id INTEGER NOT NULL, " +
+                        "PRIMARY KEY (student_id, course_id), " +
+                        "FOREIGN KEY (student_id) REFERENCES students (id) ON DELETE CASCADE, " +
+                        "FOREIGN KEY (course_id) REFERENCES courses (course_id) ON DELETE CASCADE" +
+                        ")",
+                "INSERT INTO enrollments_new (student_id, course_id) " +
+                        "SELECT student_id, course_id FROM enrollments " +
+                        "WHERE student_id IN (SELECT id FROM students) " +
+                        "AND course_id IN (SELECT course_id FROM courses)",
+                "DROP TABLE enrollments",
+                "ALTER TABLE enrollments_new RENAME TO enrollments")
+            .addSql(2, "Index enrollments by course",
+                "CREATE INDEX IF NOT EXISTS idx_enrollments_course_id ON enrollments (course_id)")
+            .addSql(3, "Index courses by teacher",
+                "CREATE INDEX IF NOT EXISTS idx_courses_teacher_id ON courses (teacher_id)")
+            .addSql(4, "Index students by grade level",
+                "CREATE INDEX IF NOT EXISTS idx_students_grade_level ON students (grade_level)")
+            .add(5, "Trigram index for fuzzy name search", connection -> {
+                try (Statement stmt = connection.createStatement()) {
+                    FuzzyNameIndex.createTables(stmt);
+                }
+                // Names stored before the index existed
+                backfillFuzzyIndex(connection, "SELECT id, name FROM students", FuzzyNameIndex.STUDENTS);
+                backfillFuzzyIndex(connection, "SELECT id, name FROM teachers", FuzzyNameIndex.TEACHERS);
+                backfillFuzzyIndex(connection, "SELECT course_id, title FROM courses", FuzzyNameIndex.COURSES);
+            });
+        
+        try {
+            pool.write(connection -> migrator.migrate(connection));
+        } catch (SQLException e) {
+            throw new SQLException("Failed to migrate database schema: " + e.getMessage(), e);
+        }
+    }
+    
+    private void backfillFuzzyIndex(Connection connection, String sql, String entity) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            fuzzyIndex.putAll(connection, entity, rs);
+        }
+    }
+    
+    // True when a constraint error came from a foreign key rather than a duplicate key
+    private static boolean isForeignKeyViolation(SQLException e) {
+        return e.getErrorCode() == 19 && e.getMessage() != null && e.getMessage().contains("FOREIGN KEY");
+    }
+    
+    // Create FTS5 indexes over student/teacher names and course titles, kept in sync by triggers.
+    // If the SQLite build has no FTS5 the search methods fall back to LIKE scans.
+    private void createSearchIndexes() throws SQLException {
+        try {
+            pool.write(connection -> {
+                try (Statement stmt = connection.createStatement()) {
+                    createSearchIndex(stmt, "students", "id", "name");
+                    createSearchIndex(stmt, "teachers", "id", "name");
+                    createSearchIndex(stmt, "courses", "course_id", "title");
+                }
+                return null;
+            });
+            searchIndexAvailable = true;
+        } catch (SQLException e) {
+            searchIndexAvailable = false;
+            System.err.println("Full-text search unavailable, using LIKE search: " + e.getMessage());
+        }
+    }
+    
+    private void createSearchIndex(Statement stmt, String table, String keyColumn, String textColumn) throws SQLException {
+        String index = table + "_fts";
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + index + "'")) {
+            exists = rs.next();
+        }
+        
+        // Marks (M*) are token characters so Arabic diacritics do not split a word
+        stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS " + index + " USING fts5(" +
+                textColumn + ", content='" + table + "', content_rowid='" + keyColumn + "', " +
+                "tokenize=\"unicode61 remove_diacritics 2 categories 'L* N* Co M*'\")");
+        
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS " + index + "_ai AFTER INSERT ON " + table + " BEGIN " +
+                "INSERT INTO " + index + "(rowid, " + textColumn + ") VALUES (new." + keyColumn + ", new." + textColumn + "); " +
+                "END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS " + index + "_ad AFTER DELETE ON " + table + " BEGIN " +
+                "INSERT INTO " + index + "(" + index + ", rowid, " + textColumn + ") " +
+                "VALUES ('delete', old." + keyColumn + ", old." + textColumn + "); " +
+                "END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS " + index + "_au AFTER UPDATE ON " + table + " BEGIN " +
+                "INSERT INTO " + index + "(" + index + ", rowid, " + textColumn + ") " +
+                "VALUES ('delete', old." + keyColumn + ", old." + textColumn + "); " +
+                "INSERT INTO " + index + "(rowid, " + textColumn + ") VALUES (new." + keyColumn + ", new." + textColumn + "); " +
+                "END");
+        
+        // Index rows that were stored before the index existed
+        if (!exists) {
+            stmt.execute("INSERT INTO " + index + "(" + index + ") VALUES ('rebuild')");
+        }
+    }
+    
+    // Turn user input into an FTS5 query where every word is a quoted prefix term,
+    // e.g. "ahm al" -> "ahm"* "al"*. Returns null when the input has no searchable words.
+    private static String toPrefixQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        
+        StringBuilder query = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            int type = Character.getType(c);
+            boolean mark = type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+            if (Character.isLetterOrDigit(c) || mark) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append('"').append(word).append("\"*");
+                word.setLength(0);
+            }
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+    
+    // Maps the current row of a result set to an object
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+    
+    // Row mappers shared by the query methods
+    private static Student mapStudent(ResultSet rs) throws SQLException {
+        return new Student(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getInt("age"),
+            rs.getInt("grade_level")
+        );
+    }
+    
+    private static Teacher mapTeacher(ResultSet rs) throws SQLException {
+        return new Teacher(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getInt("age"),
+            rs.getString("subject")
+        );
+    }
+    
+    // Copies handed out by the entity caches; cached rows have no courses, so the fields are all there is
+    private static Student copyStudent(Student student) {
+        return new Student(student.getId(), student.getName(), student.getAge(), student.getGradeLevel());
+    }
+    
+    private static Teacher copyTeacher(Teacher teacher) {
+        return new Teacher(teacher.getId(), teacher.getName(), teacher.getAge(), teacher.getSubject());
+    }
+    
+    // Maps a course row joined with its (optional) teacher columns
+    private static Course mapCourse(ResultSet rs) throws SQLException {
+        Course course = new Course(
+            rs.getInt("course_id"),
+            rs.getString("title"),
+            rs.getInt("max_capacity")
+        );
+        
+        // Set teacher if exists
+        if (rs.getInt("teacher_id") != 0) {
+            Teacher teacher = new Teacher(
+                rs.getInt("teacher_id"),
+                rs.getString("teacher_name"),
+                rs.getInt("teacher_age"),
+                rs.getString("subject")
+            );
+            course.setTeacher(teacher);
         }
+        
+        return course;
     }
     
     // Insert student into database
     public boolean insertStudent(Student student) throws SQLException {
+        return metrics.time("insertStudent", () -> doInsertStudent(student));
+    }
+    
+    private boolean doInsertStudent(Student student) throws SQLException {
         String sql = "INSERT INTO students (id, name, age, grade_level) VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, student.getId());
-            pstmt.setString(2, student.getName());
-            pstmt.setInt(3, student.getAge());
-            pstmt.setInt(4, student.getGradeLevel());
-            
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return transaction(db -> pool.write(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, student.getId());
+                pstmt.setString(2, student.getName());
+                pstmt.setInt(3, student.getAge());
+                pstmt.setInt(4, student.getGradeLevel());
+                
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.put(connection, FuzzyNameIndex.STUDENTS, student.getId(), student.getName());
+                    publish(new ChangeEvent(ChangeEvent.Entity.STUDENT, ChangeEvent.Kind.INSERT, student.getId()));
+                }
+                return rowsAffected > 0;
+            }));
         } catch (SQLException e) {
             if (e.getErrorCode() == 19) { // SQLITE_CONSTRAINT
                 throw new SQLException("Student with ID " + student.getId() + " already exists", e);
@@ -92,16 +421,27 @@ public class SchoolDB {
     
     // Insert teacher into database
     public boolean insertTeacher(Teacher teacher) throws SQLException {
+        return metrics.time("insertTeacher", () -> doInsertTeacher(teacher));
+    }
+    
+    private boolean doInsertTeacher(Teacher teacher) throws SQLException {
         String sql = "INSERT INTO teachers (id, name, age, subject) VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, teacher.getId());
-            pstmt.setString(2, teacher.getName());
-            pstmt.setInt(3, teacher.getAge());
-            pstmt.setString(4, teacher.getSubject());
-            
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return transaction(db -> pool.write(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, teacher.getId());
+                pstmt.setString(2, teacher.getName());
+                pstmt.setInt(3, teacher.getAge());
+                pstmt.setString(4, teacher.getSubject());
+                
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.put(connection, FuzzyNameIndex.TEACHERS, teacher.getId(), teacher.getName());
+                    publish(new ChangeEvent(ChangeEvent.Entity.TEACHER, ChangeEvent.Kind.INSERT, teacher.getId()));
+                }
+                return rowsAffected > 0;
+            }));
         } catch (SQLException e) {
             if (e.getErrorCode() == 19) { // SQLITE_CONSTRAINT
                 throw new SQLException("Teacher with ID " + teacher.getId() + " already exists", e);
@@ -112,21 +452,35 @@ public class SchoolDB {
     
     // Insert course into database
     public boolean insertCourse(Course course) throws SQLException {
+        return metrics.time("insertCourse", () -> doInsertCourse(course));
+    }
+    
+    private boolean doInsertCourse(Course course) throws SQLException {
         String sql = "INSERT INTO courses (course_id, title, teacher_id, max_capacity) VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, course.getCourseId());
-            pstmt.setString(2, course.getTitle());
-            if (course.getTeacher() != null) {
-                pstmt.setInt(3, course.getTeacher().getId());
-            } else {
-                pstmt.setNull(3, Types.INTEGER);
-            }
-            pstmt.setInt(4, course.getMaxCapacity());
-            
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return transaction(db -> pool.write(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, course.getCourseId());
+                pstmt.setString(2, course.getTitle());
+                if (course.getTeacher() != null) {
+                    pstmt.setInt(3, course.getTeacher().getId());
+                } else {
+                    pstmt.setNull(3, Types.INTEGER);
+                }
+                pstmt.setInt(4, course.getMaxCapacity());
+                
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.put(connection, FuzzyNameIndex.COURSES, course.getCourseId(), course.getTitle());
+                    publish(new ChangeEvent(ChangeEvent.Entity.COURSE, ChangeEvent.Kind.INSERT, course.getCourseId()));
+                }
+                return rowsAffected > 0;
+            }));
         } catch (SQLException e) {
+            if (isForeignKeyViolation(e)) {
+                throw new SQLException("Teacher assigned to course " + course.getCourseId() + " does not exist", e);
+            }
             if (e.getErrorCode() == 19) { // SQLITE_CONSTRAINT
                 throw new SQLException("Course with ID " + course.getCourseId() + " already exists", e);
             }
@@ -134,354 +488,1696 @@ public class SchoolDB {
         }
     }
     
-    // Get all students from database
-    public List<Student> getStudents() throws SQLException {
-        List<Student> students = new ArrayList<>();
-        String sql = "SELECT * FROM students";
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                Student student = new Student(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getInt("age"),
-                    rs.getInt("grade_level")
-                );
-                students.add(student);
+    // Run several operations as one transaction: everything commits together, or nothing
+    // does if the work throws. Any SchoolDB method may be called on the db passed to the work.
+    // Nested calls become savepoints, so an inner failure can be caught without losing the
+    // outer work. The whole transaction may be re-run if the database stays locked by another process.
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        return metrics.time("inTransaction", () -> transaction(work));
+    }
+    
+    // inTransaction() without the metrics, for SchoolDB's own methods so their writes are not counted twice
+    private <T> T transaction(TransactionWork<T> work) throws SQLException {
+        List<ChangeEvent> committed = new ArrayList<>();
+        long[] sequence = {-1};
+        try {
+            return pool.write(connection -> {
+                if (transactionDepth > 0) {
+                    Savepoint savepoint = connection.setSavepoint();
+                    int changesBefore = pendingChanges.size();
+                    transactionDepth++;
+                    try {
+                        T result = work.execute(this);
+                        connection.releaseSavepoint(savepoint);
+                        return result;
+                    } catch (SQLException | RuntimeException e) {
+                        connection.rollback(savepoint);
+                        connection.releaseSavepoint(savepoint);
+                        pendingChanges.subList(changesBefore, pendingChanges.size()).clear();
+                        throw e;
+                    } finally {
+                        transactionDepth--;
+                    }
+                }
+                
+                connection.setAutoCommit(false);
+                transactionDepth++;
+                try {
+                    T result = work.execute(this);
+                    connection.commit();
+                    // Numbered while this thread still holds the writer, so listeners get commits in order
+                    if (!pendingChanges.isEmpty() && sequence[0] < 0) {
+                        committed.addAll(pendingChanges);
+                        sequence[0] = changeBus.nextSequence();
+                    }
+                    return result;
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    pendingChanges.clear();
+                    transactionDepth--;
+                    connection.setAutoCommit(true);
+                    runAfterTransaction();
+                }
+            });
+        } finally {
+            // Only the outermost transaction commits anything; listeners run after the writer is released
+            if (sequence[0] >= 0) {
+                changeBus.publish(sequence[0], committed);
             }
-        } catch (SQLException e) {
-            throw new SQLException("Failed to retrieve students: " + e.getMessage(), e);
         }
-        
-        return students;
     }
     
-    // Get all teachers from database
-    public List<Teacher> getTeachers() throws SQLException {
-        List<Teacher> teachers = new ArrayList<>();
-        String sql = "SELECT * FROM teachers";
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                Teacher teacher = new Teacher(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getInt("age"),
-                    rs.getString("subject")
-                );
-                teachers.add(teacher);
-            }
-        } catch (SQLException e) {
-            throw new SQLException("Failed to retrieve teachers: " + e.getMessage(), e);
+    public boolean isInTransaction() {
+        return pool.isWriting() && transactionDepth > 0;
+    }
+    
+    // Defer an action until the current transaction ends (commit or rollback),
+    // or run it now when there is no transaction
+    private void afterTransaction(Runnable action) {
+        if (isInTransaction()) {
+            afterTransaction.add(action);
+        } else {
+            action.run();
         }
-        
-        return teachers;
     }
     
-    // Get all courses from database
-    public List<Course> getCourses() throws SQLException {
-        List<Course> courses = new ArrayList<>();
-        String sql = "SELECT c.course_id, c.title, c.max_capacity, " +
-                "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
-                "FROM courses c " +
-                "LEFT JOIN teachers t ON c.teacher_id = t.id";
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                Course course = new Course(
-                    rs.getInt("course_id"),
-                    rs.getString("title"),
-                    rs.getInt("max_capacity")
-                );
-                
-                // Set teacher if exists
-                if (rs.getInt("teacher_id") != 0) {
-                    Teacher teacher = new Teacher(
-                        rs.getInt("teacher_id"),
-                        rs.getString("teacher_name"),
-                        rs.getInt("teacher_age"),
-                        rs.getString("subject")
-                    );
-                    course.setTeacher(teacher);
-                }
-                
-                courses.add(course);
-            }
-        } catch (SQLException e) {
-            throw new SQLException("Failed to retrieve courses: " + e.getMessage(), e);
+    private void runAfterTransaction() {
+        List<Runnable> actions = new ArrayList<>(afterTransaction);
+        afterTransaction.clear();
+        for (Runnable action : actions) {
+            action.run();
         }
-        
-        return courses;
     }
     
-    // Enroll student in course
-    public boolean enrollStudentInCourse(int studentId, int courseId) throws SQLException {
-        String sql = "INSERT INTO enrollments (student_id, course_id) VALUES (?, ?)";
+    // Report a successful change when the enclosing transaction commits (changes rolled back with
+    // a transaction or savepoint are never reported). Writes call this from inside transaction(),
+    // so the change is numbered with its commit before the writer is released.
+    private void publish(ChangeEvent change) {
+        if (!changeBus.hasListeners()) {
+            return; // nobody to tell; a bulk load would otherwise hold an event per row until commit
+        }
+        if (!isInTransaction()) {
+            throw new IllegalStateException("Changes must be published inside a transaction");
+        }
+        pendingChanges.add(change);
+    }
+    
+    // Listen for committed changes on the thread that made them
+    public void addChangeListener(ChangeBus.Listener listener) {
+        changeBus.addListener(listener);
+    }
+    
+    // Listen for committed changes on an executor, e.g. SwingUtilities::invokeLater for views
+    public void addChangeListener(ChangeBus.Listener listener, Executor executor) {
+        changeBus.addListener(listener, executor);
+    }
+    
+    public void removeChangeListener(ChangeBus.Listener listener) {
+        changeBus.removeListener(listener);
+    }
+    
+    // Load the in-memory name indexes on a background thread and keep them current from the
+    // change bus. Until loading finishes the suggest methods use the full-text index instead.
+    public synchronized void loadNameIndexes() {
+        if (nameIndexExecutor != null) {
+            return;
+        }
+        nameIndexExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "name-index");
+            thread.setDaemon(true);
+            return thread;
+        });
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, studentId);
-            pstmt.setInt(2, courseId);
-            
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            if (e.getErrorCode() == 19) { // SQLITE_CONSTRAINT
-                throw new SQLException("Student is already enrolled in this course", e);
+        // Listening first means no commit is missed; changes already in the loaded rows are applied again harmlessly
+        addChangeListener(this::updateNameIndexes, nameIndexExecutor);
+        nameIndexExecutor.execute(this::reloadNameIndexes);
+    }
+    
+    private void reloadNameIndexes() {
+        long start = System.nanoTime();
+        try {
+            try (Stream<Student> students = doStreamStudents()) {
+                loadNameIndex(studentNames, students, Student::getId, Student::getName);
             }
-            throw new SQLException("Failed to enroll student: " + e.getMessage(), e);
+            try (Stream<Teacher> teachers = doStreamTeachers()) {
+                loadNameIndex(teacherNames, teachers, Teacher::getId, Teacher::getName);
+            }
+            try (Stream<Course> courses = doStreamCourses()) {
+                loadNameIndex(courseTitles, courses, Course::getCourseId, Course::getTitle);
+            }
+            System.out.printf("Name indexes loaded in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to load name indexes: " + e.getMessage());
         }
     }
     
-    // Get student by ID
-    public Student getStudentById(int id) throws SQLException {
-        String sql = "SELECT * FROM students WHERE id = ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return new Student(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getInt("age"),
-                    rs.getInt("grade_level")
-                );
+    private static <T> void loadNameIndex(PrefixIndex index, Stream<T> rows, ToIntFunction<T> idOf, Function<T, String> nameOf) {
+        int[] ids = new int[1024];
+        String[] names = new String[1024];
+        int count = 0;
+        for (T row : (Iterable<T>) rows::iterator) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                names = Arrays.copyOf(names, count * 2);
             }
-            return null;
-        } catch (SQLException e) {
-            throw new SQLException("Failed to retrieve student: " + e.getMessage(), e);
+            ids[count] = idOf.applyAsInt(row);
+            names[count++] = nameOf.apply(row);
         }
+        index.load(Arrays.copyOf(ids, count), Arrays.copyOf(names, count));
     }
     
-    // Get teacher by ID
-    public Teacher getTeacherById(int id) throws SQLException {
-        String sql = "SELECT * FROM teachers WHERE id = ?";
+    // Apply committed changes to the name indexes, reading the current name of each changed row
+    private void updateNameIndexes(List<ChangeEvent> changes) {
+        if (changes.size() > MAX_NAME_INDEX_CHANGES) {
+            reloadNameIndexes();
+            return;
+        }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                return new Teacher(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getInt("age"),
-                    rs.getString("subject")
-                );
+        try {
+            for (ChangeEvent change : changes) {
+                int id = change.getId();
+                boolean deleted = change.getKind() == ChangeEvent.Kind.DELETE;
+                switch (change.getEntity()) {
+                    case STUDENT:
+                        Student student = deleted ? null : doGetStudentById(id);
+                        updateNameIndex(studentNames, id, student != null ? student.getName() : null);
+                        break;
+                    case TEACHER:
+                        Teacher teacher = deleted ? null : doGetTeacherById(id);
+                        updateNameIndex(teacherNames, id, teacher != null ? teacher.getName() : null);
+                        break;
+                    case COURSE:
+                        Course course = deleted ? null : doGetCourseById(id);
+                        updateNameIndex(courseTitles, id, course != null ? course.getTitle() : null);
+                        break;
+                    case ENROLLMENT:
+                        break;
+                }
             }
-            return null;
         } catch (SQLException e) {
-            throw new SQLException("Failed to retrieve teacher: " + e.getMessage(), e);
+            System.err.println("Failed to update name indexes, reloading: " + e.getMessage());
+            reloadNameIndexes();
         }
     }
     
-    // Update student in database
-    public boolean updateStudent(Student student) throws SQLException {
-        String sql = "UPDATE students SET name = ?, age = ?, grade_level = ? WHERE id = ?";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, student.getName());
-            pstmt.setInt(2, student.getAge());
-            pstmt.setInt(3, student.getGradeLevel());
-            pstmt.setInt(4, student.getId());
-            
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
-        } catch (SQLException e) {
-            throw new SQLException("Failed to update student: " + e.getMessage(), e);
+    private static void updateNameIndex(PrefixIndex index, int id, String name) {
+        if (name == null) {
+            index.remove(id);
+        } else {
+            index.put(id, name);
         }
     }
     
-    // Update teacher in database
-    public boolean updateTeacher(Teacher teacher) throws SQLException {
-        String sql = "UPDATE teachers SET name = ?, age = ?, subject = ? WHERE id = ?";
+    public boolean areNameIndexesReady() {
+        return studentNames.isReady() && teacherNames.isReady() && courseTitles.isReady();
+    }
+    
+    // Size and approximate memory of each name index, one line per index
+    public String describeNameIndexes() {
+        return studentNames + "\n" + teacherNames + "\n" + courseTitles;
+    }
+    
+    // Drop cached entities after a write, and again when the enclosing transaction ends
+    // so a reader cannot re-cache the old row while the transaction is still open
+    private void invalidateStudent(int id) {
+        studentCache.invalidate(id);
+        afterTransaction(() -> studentCache.invalidate(id));
+    }
+    
+    private void invalidateTeacher(int id) {
+        teacherCache.invalidate(id);
+        afterTransaction(() -> teacherCache.invalidate(id));
+    }
+    
+    // Binds one row of a bulk insert to the prepared statement
+    private interface RowBinder<T> {
+        void bind(PreparedStatement pstmt, T row) throws SQLException;
+    }
+    
+    // Extra writes for an inserted row, in the same transaction (e.g. its fuzzy index entry)
+    private interface RowIndexer<T> {
+        void index(Connection connection, T row) throws SQLException;
+    }
+    
+    // Insert many students in one transaction
+    public BatchResult insertStudents(Collection<Student> students) throws SQLException {
+        return insertStudents(students, DEFAULT_BATCH_SIZE);
+    }
+    
+    public BatchResult insertStudents(Collection<Student> students, int batchSize) throws SQLException {
+        return metrics.time("insertStudents", () -> doInsertStudents(students, batchSize));
+    }
+    
+    private BatchResult doInsertStudents(Collection<Student> students, int batchSize) throws SQLException {
+        String sql = "INSERT INTO students (id, name, age, grade_level) VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, teacher.getName());
-            pstmt.setInt(2, teacher.getAge());
-            pstmt.setString(3, teacher.getSubject());
-            pstmt.setInt(4, teacher.getId());
-            
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return insertBatch(sql, new ArrayList<>(students), batchSize,
+                student -> "Student " + student.getId(),
+                student -> new ChangeEvent(ChangeEvent.Entity.STUDENT, ChangeEvent.Kind.INSERT, student.getId()),
+                (connection, student) -> fuzzyIndex.put(connection, FuzzyNameIndex.STUDENTS, student.getId(), student.getName()),
+                (pstmt, student) -> {
+                    pstmt.setInt(1, student.getId());
+                    pstmt.setString(2, student.getName());
+                    pstmt.setInt(3, student.getAge());
+                    pstmt.setInt(4, student.getGradeLevel());
+                });
         } catch (SQLException e) {
-            throw new SQLException("Failed to update teacher: " + e.getMessage(), e);
+            throw new SQLException("Failed to insert students: " + e.getMessage(), e);
         }
     }
     
-    // Update course in database
-    public boolean updateCourse(Course course) throws SQLException {
-        String sql = "UPDATE courses SET title = ?, teacher_id = ?, max_capacity = ? WHERE course_id = ?";
+    // Insert many teachers in one transaction
+    public BatchResult insertTeachers(Collection<Teacher> teachers) throws SQLException {
+        return insertTeachers(teachers, DEFAULT_BATCH_SIZE);
+    }
+    
+    public BatchResult insertTeachers(Collection<Teacher> teachers, int batchSize) throws SQLException {
+        return metrics.time("insertTeachers", () -> doInsertTeachers(teachers, batchSize));
+    }
+    
+    private BatchResult doInsertTeachers(Collection<Teacher> teachers, int batchSize) throws SQLException {
+        String sql = "INSERT INTO teachers (id, name, age, subject) VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, course.getTitle());
-            if (course.getTeacher() != null) {
-                pstmt.setInt(2, course.getTeacher().getId());
-            } else {
-                pstmt.setNull(2, Types.INTEGER);
-            }
-            pstmt.setInt(3, course.getMaxCapacity());
-            pstmt.setInt(4, course.getCourseId());
-            
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return insertBatch(sql, new ArrayList<>(teachers), batchSize,
+                teacher -> "Teacher " + teacher.getId(),
+                teacher -> new ChangeEvent(ChangeEvent.Entity.TEACHER, ChangeEvent.Kind.INSERT, teacher.getId()),
+                (connection, teacher) -> fuzzyIndex.put(connection, FuzzyNameIndex.TEACHERS, teacher.getId(), teacher.getName()),
+                (pstmt, teacher) -> {
+                    pstmt.setInt(1, teacher.getId());
+                    pstmt.setString(2, teacher.getName());
+                    pstmt.setInt(3, teacher.getAge());
+                    pstmt.setString(4, teacher.getSubject());
+                });
         } catch (SQLException e) {
-            throw new SQLException("Failed to update course: " + e.getMessage(), e);
+            throw new SQLException("Failed to insert teachers: " + e.getMessage(), e);
         }
     }
     
-    // Search students by name
-    public List<Student> searchStudentsByName(String name) throws SQLException {
-        String sql = "SELECT * FROM students WHERE name LIKE ?";
-        List<Student> students = new ArrayList<>();
+    // Insert many courses in one transaction
+    public BatchResult insertCourses(Collection<Course> courses) throws SQLException {
+        return insertCourses(courses, DEFAULT_BATCH_SIZE);
+    }
+    
+    public BatchResult insertCourses(Collection<Course> courses, int batchSize) throws SQLException {
+        return metrics.time("insertCourses", () -> doInsertCourses(courses, batchSize));
+    }
+    
+    private BatchResult doInsertCourses(Collection<Course> courses, int batchSize) throws SQLException {
+        String sql = "INSERT INTO courses (course_id, title, teacher_id, max_capacity) VALUES (?, ?, ?, ?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, "%" + name + "%");
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                students.add(new Student(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getInt("age"),
-                    rs.getInt("grade_level")
-                ));
-            }
+        try {
+            return insertBatch(sql, new ArrayList<>(courses), batchSize,
+                course -> "Course " + course.getCourseId(),
+                course -> new ChangeEvent(ChangeEvent.Entity.COURSE, ChangeEvent.Kind.INSERT, course.getCourseId()),
+                (connection, course) -> fuzzyIndex.put(connection, FuzzyNameIndex.COURSES, course.getCourseId(), course.getTitle()),
+                (pstmt, course) -> {
+                    pstmt.setInt(1, course.getCourseId());
+                    pstmt.setString(2, course.getTitle());
+                    if (course.getTeacher() != null) {
+                        pstmt.setInt(3, course.getTeacher().getId());
+                    } else {
+                        pstmt.setNull(3, Types.INTEGER);
+                    }
+                    pstmt.setInt(4, course.getMaxCapacity());
+                });
         } catch (SQLException e) {
-            throw new SQLException("Failed to search students: " + e.getMessage(), e);
+            throw new SQLException("Failed to insert courses: " + e.getMessage(), e);
         }
-        
-        return students;
     }
     
-    // Search teachers by name
-    public List<Teacher> searchTeachersByName(String name) throws SQLException {
-        String sql = "SELECT * FROM teachers WHERE name LIKE ?";
-        List<Teacher> teachers = new ArrayList<>();
+    // Persist the enrolled students of each course in one transaction
+    public BatchResult insertEnrollments(Collection<Course> courses) throws SQLException {
+        return insertEnrollments(courses, DEFAULT_BATCH_SIZE);
+    }
+    
+    public BatchResult insertEnrollments(Collection<Course> courses, int batchSize) throws SQLException {
+        return metrics.time("insertEnrollments", () -> doInsertEnrollments(courses, batchSize));
+    }
+    
+    private BatchResult doInsertEnrollments(Collection<Course> courses, int batchSize) throws SQLException {
+        String sql = "INSERT INTO enrollments (student_id, course_id) VALUES (?, ?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, "%" + name + "%");
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                teachers.add(new Teacher(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getInt("age"),
-                    rs.getString("subject")
-                ));
+        // Each pair is {studentId, courseId}
+        List<int[]> pairs = new ArrayList<>();
+        for (Course course : courses) {
+            for (Student student : course.getEnrolledStudents()) {
+                pairs.add(new int[] {student.getId(), course.getCourseId()});
             }
-        } catch (SQLException e) {
-            throw new SQLException("Failed to search teachers: " + e.getMessage(), e);
         }
         
-        return teachers;
+        try {
+            return insertBatch(sql, pairs, batchSize,
+                pair -> "Student " + pair[0] + " in course " + pair[1],
+                pair -> ChangeEvent.enrollment(ChangeEvent.Kind.INSERT, pair[0], pair[1]),
+                (connection, pair) -> { },
+                (pstmt, pair) -> {
+                    pstmt.setInt(1, pair[0]);
+                    pstmt.setInt(2, pair[1]);
+                });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to insert enrollments: " + e.getMessage(), e);
+        }
     }
     
-    // Search courses by title
-    public List<Course> searchCoursesByTitle(String title) throws SQLException {
-        String sql = "SELECT c.course_id, c.title, c.max_capacity, " +
-                "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
-                "FROM courses c " +
-                "LEFT JOIN teachers t ON c.teacher_id = t.id " +
-                "WHERE c.title LIKE ?";
-        List<Course> courses = new ArrayList<>();
+    // Run a JDBC batch per chunk inside a single transaction (or the caller's transaction).
+    // A chunk that fails is rolled back to its savepoint and replayed row by row,
+    // so rejected rows are recorded without losing the rest of the batch.
+    private <T> BatchResult insertBatch(String sql, List<T> rows, int batchSize,
+                                        Function<T, String> describe, Function<T, ChangeEvent> change,
+                                        RowIndexer<T> indexer, RowBinder<T> binder) throws SQLException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, "%" + title + "%");
-            ResultSet rs = pstmt.executeQuery();
+        return transaction(db -> pool.write(connection -> {
+            BatchResult result = new BatchResult();
+            PreparedStatement pstmt = pool.prepare(connection, sql);
             
-            while (rs.next()) {
-                Course course = new Course(
-                    rs.getInt("course_id"),
-                    rs.getString("title"),
-                    rs.getInt("max_capacity")
-                );
+            for (int start = 0; start < rows.size(); start += batchSize) {
+                List<T> chunk = rows.subList(start, Math.min(start + batchSize, rows.size()));
+                Savepoint savepoint = connection.setSavepoint();
                 
-                // Set teacher if exists
-                if (rs.getInt("teacher_id") != 0) {
-                    Teacher teacher = new Teacher(
-                        rs.getInt("teacher_id"),
-                        rs.getString("teacher_name"),
-                        rs.getInt("teacher_age"),
-                        rs.getString("subject")
-                    );
-                    course.setTeacher(teacher);
+                try {
+                    for (T row : chunk) {
+                        binder.bind(pstmt, row);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    for (T row : chunk) {
+                        indexer.index(connection, row);
+                    }
+                    result.addInserted(chunk.size());
+                    for (T row : chunk) {
+                        publish(change.apply(row));
+                    }
+                } catch (SQLException e) {
+                    pstmt.clearBatch();
+                    connection.rollback(savepoint);
+                    if (ConnectionPool.isBusy(e)) {
+                        throw e; // not a row problem; let the transaction be retried
+                    }
+                    
+                    // Each row and its index entries share a savepoint, so a row whose indexing
+                    // fails is not left behind in the table while being reported as failed
+                    for (T row : chunk) {
+                        Savepoint rowSavepoint = connection.setSavepoint();
+                        try {
+                            binder.bind(pstmt, row);
+                            pstmt.executeUpdate();
+                            indexer.index(connection, row);
+                            connection.releaseSavepoint(rowSavepoint);
+                            result.addInserted(1);
+                            publish(change.apply(row));
+                        } catch (SQLException rowError) {
+                            connection.rollback(rowSavepoint);
+                            connection.releaseSavepoint(rowSavepoint);
+                            if (ConnectionPool.isBusy(rowError)) {
+                                throw rowError;
+                            }
+                            
+                            String reason;
+                            if (isForeignKeyViolation(rowError)) {
+                                reason = "references a row that does not exist";
+                            } else if (rowError.getErrorCode() == 19) { // SQLITE_CONSTRAINT
+                                reason = "already exists or violates a constraint";
+                            } else {
+                                reason = rowError.getMessage();
+                            }
+                            result.addFailure(describe.apply(row), reason);
+                        }
+                    }
                 }
-                
-                courses.add(course);
+                connection.releaseSavepoint(savepoint);
             }
+            
+            return result;
+        }));
+    }
+    
+    // Get all students from database
+    public List<Student> getStudents() throws SQLException {
+        return metrics.time("getStudents", () -> doGetStudents());
+    }
+    
+    private List<Student> doGetStudents() throws SQLException {
+        String sql = "SELECT * FROM students";
+        
+        try {
+            return pool.read(connection -> {
+                List<Student> students = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        students.add(mapStudent(rs));
+                    }
+                }
+                return students;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve students: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get all teachers from database
+    public List<Teacher> getTeachers() throws SQLException {
+        return metrics.time("getTeachers", () -> doGetTeachers());
+    }
+    
+    private List<Teacher> doGetTeachers() throws SQLException {
+        String sql = "SELECT * FROM teachers";
+        
+        try {
+            return pool.read(connection -> {
+                List<Teacher> teachers = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        teachers.add(mapTeacher(rs));
+                    }
+                }
+                return teachers;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve teachers: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get all courses from database
+    public List<Course> getCourses() throws SQLException {
+        return metrics.time("getCourses", () -> doGetCourses());
+    }
+    
+    private List<Course> doGetCourses() throws SQLException {
+        String sql = "SELECT c.course_id, c.title, c.max_capacity, " +
+                "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
+                "FROM courses c " +
+                "LEFT JOIN teachers t ON c.teacher_id = t.id";
+        
+        try {
+            return pool.read(connection -> {
+                List<Course> courses = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        courses.add(mapCourse(rs));
+                    }
+                }
+                return courses;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve courses: " + e.getMessage(), e);
+        }
+    }
+    
+    // Stream every student in ID order without loading the table into memory.
+    // The stream holds a database connection open and must be closed, e.g. with try-with-resources.
+    public Stream<Student> streamStudents() throws SQLException {
+        return metrics.time("streamStudents", () -> doStreamStudents());
+    }
+    
+    private Stream<Student> doStreamStudents() throws SQLException {
+        return streamQuery("SELECT * FROM students ORDER BY id", SchoolDB::mapStudent, "students");
+    }
+    
+    // Stream every teacher in ID order; the stream must be closed
+    public Stream<Teacher> streamTeachers() throws SQLException {
+        return metrics.time("streamTeachers", () -> doStreamTeachers());
+    }
+    
+    private Stream<Teacher> doStreamTeachers() throws SQLException {
+        return streamQuery("SELECT * FROM teachers ORDER BY id", SchoolDB::mapTeacher, "teachers");
+    }
+    
+    // Stream every course with its teacher in course ID order; the stream must be closed
+    public Stream<Course> streamCourses() throws SQLException {
+        return metrics.time("streamCourses", () -> doStreamCourses());
+    }
+    
+    private Stream<Course> doStreamCourses() throws SQLException {
+        String sql = "SELECT c.course_id, c.title, c.max_capacity, " +
+                "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
+                "FROM courses c " +
+                "LEFT JOIN teachers t ON c.teacher_id = t.id " +
+                "ORDER BY c.course_id";
+        return streamQuery(sql, SchoolDB::mapCourse, "courses");
+    }
+    
+    // Run a query and expose its open cursor as a stream. The statement is not taken
+    // from the statement cache because it stays open while the caller reads.
+    private <T> Stream<T> streamQuery(String sql, RowMapper<T> mapper, String entityName,
+                                      String... params) throws SQLException {
+        Connection connection = pool.acquireReader();
+        PreparedStatement pstmt = null;
+        ResultSet rs;
+        try {
+            pstmt = connection.prepareStatement(sql);
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setString(i + 1, params[i]);
+            }
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            closeQuietly(pstmt);
+            pool.release(connection);
+            throw new SQLException("Failed to retrieve " + entityName + ": " + e.getMessage(), e);
+        }
+        
+        PreparedStatement cursorStatement = pstmt;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Failed to read " + entityName + ": " + e.getMessage(), e);
+                }
+            }
+        };
+        
+        boolean[] closed = {false};
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            if (!closed[0]) {
+                closed[0] = true;
+                closeQuietly(cursorStatement);
+                pool.release(connection);
+            }
+        });
+    }
+    
+    private static void closeQuietly(Statement stmt) {
+        if (stmt == null) {
+            return;
+        }
+        try {
+            stmt.close(); // also closes its result set
+        } catch (SQLException e) {
+            System.err.println("Error closing statement: " + e.getMessage());
+        }
+    }
+    
+    // Get the next page of students with ID greater than lastId, in ID order.
+    // Pass 0 for the first page and the last ID of the previous page afterwards.
+    public List<Student> getStudentsAfter(int lastId, int limit) throws SQLException {
+        return metrics.time("getStudentsAfter", () -> doGetStudentsAfter(lastId, limit));
+    }
+    
+    private List<Student> doGetStudentsAfter(int lastId, int limit) throws SQLException {
+        String sql = "SELECT * FROM students WHERE id > ? ORDER BY id LIMIT ?";
+        
+        try {
+            return pool.read(connection -> {
+                List<Student> students = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, lastId);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        students.add(mapStudent(rs));
+                    }
+                }
+                return students;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve students: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get the next page of teachers with ID greater than lastId, in ID order
+    public List<Teacher> getTeachersAfter(int lastId, int limit) throws SQLException {
+        return metrics.time("getTeachersAfter", () -> doGetTeachersAfter(lastId, limit));
+    }
+    
+    private List<Teacher> doGetTeachersAfter(int lastId, int limit) throws SQLException {
+        String sql = "SELECT * FROM teachers WHERE id > ? ORDER BY id LIMIT ?";
+        
+        try {
+            return pool.read(connection -> {
+                List<Teacher> teachers = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, lastId);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        teachers.add(mapTeacher(rs));
+                    }
+                }
+                return teachers;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve teachers: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get the next page of courses with ID greater than lastCourseId, in course ID order
+    public List<Course> getCoursesAfter(int lastCourseId, int limit) throws SQLException {
+        return metrics.time("getCoursesAfter", () -> doGetCoursesAfter(lastCourseId, limit));
+    }
+    
+    private List<Course> doGetCoursesAfter(int lastCourseId, int limit) throws SQLException {
+        String sql = "SELECT c.course_id, c.title, c.max_capacity, " +
+                "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
+                "FROM courses c " +
+                "LEFT JOIN teachers t ON c.teacher_id = t.id " +
+                "WHERE c.course_id > ? " +
+                "ORDER BY c.course_id LIMIT ?";
+        
+        try {
+            return pool.read(connection -> {
+                List<Course> courses = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, lastCourseId);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        courses.add(mapCourse(rs));
+                    }
+                }
+                return courses;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve courses: " + e.getMessage(), e);
+        }
+    }
+    
+    // All student IDs in ID order - 4 bytes per row, so a paged view can index
+    // every row without loading the rows themselves
+    public int[] getStudentIds() throws SQLException {
+        return metrics.time("getStudentIds", () -> doGetStudentIds());
+    }
+    
+    private int[] doGetStudentIds() throws SQLException {
+        return loadIds("SELECT id FROM students ORDER BY id", "student");
+    }
+    
+    public int[] getTeacherIds() throws SQLException {
+        return metrics.time("getTeacherIds", () -> doGetTeacherIds());
+    }
+    
+    private int[] doGetTeacherIds() throws SQLException {
+        return loadIds("SELECT id FROM teachers ORDER BY id", "teacher");
+    }
+    
+    public int[] getCourseIds() throws SQLException {
+        return metrics.time("getCourseIds", () -> doGetCourseIds());
+    }
+    
+    private int[] doGetCourseIds() throws SQLException {
+        return loadIds("SELECT course_id FROM courses ORDER BY course_id", "course");
+    }
+    
+    private int[] loadIds(String sql, String entity) throws SQLException {
+        try {
+            return pool.read(connection -> {
+                int[] ids = new int[256];
+                int count = 0;
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (count == ids.length) {
+                            ids = Arrays.copyOf(ids, count * 2);
+                        }
+                        ids[count++] = rs.getInt(1);
+                    }
+                }
+                return Arrays.copyOf(ids, count);
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve " + entity + " IDs: " + e.getMessage(), e);
+        }
+    }
+    
+    // Enroll student in course
+    public boolean enrollStudentInCourse(int studentId, int courseId) throws SQLException {
+        return metrics.time("enrollStudentInCourse", () -> doEnrollStudentInCourse(studentId, courseId));
+    }
+    
+    private boolean doEnrollStudentInCourse(int studentId, int courseId) throws SQLException {
+        String sql = "INSERT INTO enrollments (student_id, course_id) VALUES (?, ?)";
+        
+        try {
+            return transaction(db -> pool.write(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, studentId);
+                pstmt.setInt(2, courseId);
+                
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    publish(ChangeEvent.enrollment(ChangeEvent.Kind.INSERT, studentId, courseId));
+                }
+                return rowsAffected > 0;
+            }));
+        } catch (SQLException e) {
+            if (isForeignKeyViolation(e)) {
+                throw new SQLException("Student or course does not exist", e);
+            }
+            if (e.getErrorCode() == 19) { // SQLITE_CONSTRAINT
+                throw new SQLException("Student is already enrolled in this course", e);
+            }
+            throw new SQLException("Failed to enroll student: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get the courses taught by a teacher
+    public List<Course> getCoursesByTeacher(int teacherId) throws SQLException {
+        return metrics.time("getCoursesByTeacher", () -> doGetCoursesByTeacher(teacherId));
+    }
+    
+    private List<Course> doGetCoursesByTeacher(int teacherId) throws SQLException {
+        String sql = "SELECT c.course_id, c.title, c.max_capacity, " +
+                "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject " +
+                "FROM courses c " +
+                "JOIN teachers t ON c.teacher_id = t.id " +
+                "WHERE c.teacher_id = ? " +
+                "ORDER BY c.course_id";
+        
+        try {
+            return pool.read(connection -> {
+                List<Course> courses = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, teacherId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        courses.add(mapCourse(rs));
+                    }
+                }
+                return courses;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve teacher courses: " + e.getMessage(), e);
+        }
+    }
+    
+    // Columns and joins shared by the roster queries: each row is one course/student pair
+    private static final String ROSTER_SELECT = "SELECT c.course_id, c.title, c.max_capacity, " +
+            "t.id as teacher_id, t.name as teacher_name, t.age as teacher_age, t.subject, " +
+            "s.id as student_id, s.name as student_name, s.age as student_age, s.grade_level ";
+    
+    // Get a course with its teacher and enrolled students, or null if it does not exist
+    public Course getCourseWithRoster(int courseId) throws SQLException {
+        return metrics.time("getCourseWithRoster", () -> doGetCourseWithRoster(courseId));
+    }
+    
+    private Course doGetCourseWithRoster(int courseId) throws SQLException {
+        String sql = ROSTER_SELECT +
+                "FROM courses c " +
+                "LEFT JOIN teachers t ON c.teacher_id = t.id " +
+                "LEFT JOIN enrollments e ON e.course_id = c.course_id " +
+                "LEFT JOIN students s ON s.id = e.student_id " +
+                "WHERE c.course_id = ? " +
+                "ORDER BY s.id";
+        
+        try {
+            return pool.read(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, courseId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    List<Course> courses = hydrateRosters(rs, new HashMap<>());
+                    return courses.isEmpty() ? null : courses.get(0);
+                }
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve course roster: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get every course with its teacher and enrolled students in one query.
+    // Students and teachers appearing in several courses are shared instances.
+    public List<Course> getAllCoursesWithRosters() throws SQLException {
+        return metrics.time("getAllCoursesWithRosters", () -> doGetAllCoursesWithRosters());
+    }
+    
+    private List<Course> doGetAllCoursesWithRosters() throws SQLException {
+        String sql = ROSTER_SELECT +
+                "FROM courses c " +
+                "LEFT JOIN teachers t ON c.teacher_id = t.id " +
+                "LEFT JOIN enrollments e ON e.course_id = c.course_id " +
+                "LEFT JOIN students s ON s.id = e.student_id " +
+                "ORDER BY c.course_id, s.id";
+        
+        try {
+            return pool.read(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return hydrateRosters(rs, new HashMap<>());
+                }
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve course rosters: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get a student with the courses they are enrolled in (and each course's teacher),
+    // or null if the student does not exist
+    public Student getStudentWithCourses(int studentId) throws SQLException {
+        return metrics.time("getStudentWithCourses", () -> doGetStudentWithCourses(studentId));
+    }
+    
+    private Student doGetStudentWithCourses(int studentId) throws SQLException {
+        String sql = ROSTER_SELECT +
+                "FROM students s " +
+                "LEFT JOIN enrollments e ON e.student_id = s.id " +
+                "LEFT JOIN courses c ON c.course_id = e.course_id " +
+                "LEFT JOIN teachers t ON c.teacher_id = t.id " +
+                "WHERE s.id = ? " +
+                "ORDER BY c.course_id";
+        
+        try {
+            return pool.read(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, studentId);
+                Map<Integer, Student> students = new HashMap<>();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    hydrateRosters(rs, students);
+                }
+                return students.get(studentId);
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve student courses: " + e.getMessage(), e);
+        }
+    }
+    
+    // Build the course/teacher/student graph from roster rows, creating each entity once.
+    // Rows without a course (a student with no enrollments) only register the student.
+    private static List<Course> hydrateRosters(ResultSet rs, Map<Integer, Student> students) throws SQLException {
+        Map<Integer, Course> courses = new LinkedHashMap<>();
+        Map<Integer, Teacher> teachers = new HashMap<>();
+        
+        while (rs.next()) {
+            Course course = null;
+            int courseId = rs.getInt("course_id");
+            if (!rs.wasNull()) {
+                course = courses.get(courseId);
+                if (course == null) {
+                    course = new Course(courseId, rs.getString("title"), rs.getInt("max_capacity"));
+                    courses.put(courseId, course);
+                    
+                    int teacherId = rs.getInt("teacher_id");
+                    if (!rs.wasNull()) {
+                        Teacher teacher = teachers.get(teacherId);
+                        if (teacher == null) {
+                            teacher = new Teacher(teacherId, rs.getString("teacher_name"),
+                                    rs.getInt("teacher_age"), rs.getString("subject"));
+                            teachers.put(teacherId, teacher);
+                        }
+                        teacher.assignCourse(course); // also sets the course's teacher
+                    }
+                }
+            }
+            
+            int studentId = rs.getInt("student_id");
+            if (!rs.wasNull()) {
+                Student student = students.get(studentId);
+                if (student == null) {
+                    student = new Student(studentId, rs.getString("student_name"),
+                            rs.getInt("student_age"), rs.getInt("grade_level"));
+                    students.put(studentId, student);
+                }
+                if (course != null) {
+                    course.loadStudent(student);
+                    student.enrollCourse(course);
+                }
+            }
+        }
+        
+        return new ArrayList<>(courses.values());
+    }
+    
+    // Get student by ID (served from the entity cache when enabled)
+    public Student getStudentById(int id) throws SQLException {
+        return metrics.time("getStudentById", () -> doGetStudentById(id));
+    }
+    
+    private Student doGetStudentById(int id) throws SQLException {
+        return studentCache.get(id, this::loadStudentById);
+    }
+    
+    private Student loadStudentById(int id) throws SQLException {
+        String sql = "SELECT * FROM students WHERE id = ?";
+        
+        try {
+            return pool.read(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? mapStudent(rs) : null;
+                }
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve student: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get teacher by ID (served from the entity cache when enabled)
+    public Teacher getTeacherById(int id) throws SQLException {
+        return metrics.time("getTeacherById", () -> doGetTeacherById(id));
+    }
+    
+    private Teacher doGetTeacherById(int id) throws SQLException {
+        return teacherCache.get(id, this::loadTeacherById);
+    }
+    
+    private Teacher loadTeacherById(int id) throws SQLException {
+        String sql = "SELECT * FROM teachers WHERE id = ?";
+        
+        try {
+            return pool.read(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? mapTeacher(rs) : null;
+                }
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve teacher: " + e.getMessage(), e);
+        }
+    }
+    
+    // Get course by ID, with its teacher; null if there is no such course
+    public Course getCourseById(int courseId) throws SQLException {
+        return metrics.time("getCourseById", () -> doGetCourseById(courseId));
+    }
+    
+    private Course doGetCourseById(int courseId) throws SQLException {
+        String sql = COURSE_BY_IDS_SQL + "(?)";
+        
+        try {
+            return pool.read(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, courseId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? mapCourse(rs) : null;
+                }
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve course: " + e.getMessage(), e);
+        }
+    }
+    
+    // Update student in database
+    public boolean updateStudent(Student student) throws SQLException {
+        return metrics.time("updateStudent", () -> doUpdateStudent(student));
+    }
+    
+    private boolean doUpdateStudent(Student student) throws SQLException {
+        String sql = "UPDATE students SET name = ?, age = ?, grade_level = ? WHERE id = ?";
+        
+        try {
+            return transaction(db -> pool.write(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, student.getName());
+                pstmt.setInt(2, student.getAge());
+                pstmt.setInt(3, student.getGradeLevel());
+                pstmt.setInt(4, student.getId());
+                
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.put(connection, FuzzyNameIndex.STUDENTS, student.getId(), student.getName());
+                    publish(new ChangeEvent(ChangeEvent.Entity.STUDENT, ChangeEvent.Kind.UPDATE, student.getId()));
+                }
+                return rowsAffected > 0;
+            }));
+        } catch (SQLException e) {
+            throw new SQLException("Failed to update student: " + e.getMessage(), e);
+        } finally {
+            invalidateStudent(student.getId());
+        }
+    }
+    
+    // Update teacher in database
+    public boolean updateTeacher(Teacher teacher) throws SQLException {
+        return metrics.time("updateTeacher", () -> doUpdateTeacher(teacher));
+    }
+    
+    private boolean doUpdateTeacher(Teacher teacher) throws SQLException {
+        String sql = "UPDATE teachers SET name = ?, age = ?, subject = ? WHERE id = ?";
+        
+        try {
+            return transaction(db -> pool.write(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, teacher.getName());
+                pstmt.setInt(2, teacher.getAge());
+                pstmt.setString(3, teacher.getSubject());
+                pstmt.setInt(4, teacher.getId());
+                
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.put(connection, FuzzyNameIndex.TEACHERS, teacher.getId(), teacher.getName());
+                    publish(new ChangeEvent(ChangeEvent.Entity.TEACHER, ChangeEvent.Kind.UPDATE, teacher.getId()));
+                }
+                return rowsAffected > 0;
+            }));
+        } catch (SQLException e) {
+            throw new SQLException("Failed to update teacher: " + e.getMessage(), e);
+        } finally {
+            invalidateTeacher(teacher.getId());
+        }
+    }
+    
+    // Update course in database
+    public boolean updateCourse(Course course) throws SQLException {
+        return metrics.time("updateCourse", () -> doUpdateCourse(course));
+    }
+    
+    private boolean doUpdateCourse(Course course) throws SQLException {
+        String sql = "UPDATE courses SET title = ?, teacher_id = ?, max_capacity = ? WHERE course_id = ?";
+        
+        try {
+            return transaction(db -> pool.write(connection -> {
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, course.getTitle());
+                if (course.getTeacher() != null) {
+                    pstmt.setInt(2, course.getTeacher().getId());
+                } else {
+                    pstmt.setNull(2, Types.INTEGER);
+                }
+                pstmt.setInt(3, course.getMaxCapacity());
+                pstmt.setInt(4, course.getCourseId());
+                
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.put(connection, FuzzyNameIndex.COURSES, course.getCourseId(), course.getTitle());
+                    publish(new ChangeEvent(ChangeEvent.Entity.COURSE, ChangeEvent.Kind.UPDATE, course.getCourseId()));
+                }
+                return rowsAffected > 0;
+            }));
+        } catch (SQLException e) {
+            if (isForeignKeyViolation(e)) {
+                throw new SQLException("Teacher assigned to course " + course.getCourseId() + " does not exist", e);
+            }
+            throw new SQLException("Failed to update course: " + e.getMessage(), e);
+        }
+    }
+    
+    // Search students by name - ranked prefix match on each word of the name
+    public List<Student> searchStudentsByName(String name) throws SQLException {
+        return metrics.time("searchStudentsByName", () -> doSearchStudentsByName(name));
+    }
+    
+    private List<Student> doSearchStudentsByName(String name) throws SQLException {
+        String query = toPrefixQuery(name);
+        if (!searchIndexAvailable || query == null) {
+            return searchStudentsByNameLike(name);
+        }
+        
+        String sql = STUDENT_SEARCH_SQL;
+        
+        try {
+            return pool.read(connection -> {
+                List<Student> students = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, query);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        students.add(mapStudent(rs));
+                    }
+                }
+                return students;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to search students: " + e.getMessage(), e);
+        }
+    }
+    
+    private List<Student> searchStudentsByNameLike(String name) throws SQLException {
+        String sql = STUDENT_LIKE_SQL;
+        
+        try {
+            return pool.read(connection -> {
+                List<Student> students = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, "%" + name + "%");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        students.add(mapStudent(rs));
+                    }
+                }
+                return students;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to search students: " + e.getMessage(), e);
+        }
+    }
+    
+    // Search teachers by name - ranked prefix match on each word of the name
+    public List<Teacher> searchTeachersByName(String name) throws SQLException {
+        return metrics.time("searchTeachersByName", () -> doSearchTeachersByName(name));
+    }
+    
+    private List<Teacher> doSearchTeachersByName(String name) throws SQLException {
+        String query = toPrefixQuery(name);
+        if (!searchIndexAvailable || query == null) {
+            return searchTeachersByNameLike(name);
+        }
+        
+        String sql = TEACHER_SEARCH_SQL;
+        
+        try {
+            return pool.read(connection -> {
+                List<Teacher> teachers = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, query);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        teachers.add(mapTeacher(rs));
+                    }
+                }
+                return teachers;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to search teachers: " + e.getMessage(), e);
+        }
+    }
+    
+    private List<Teacher> searchTeachersByNameLike(String name) throws SQLException {
+        String sql = TEACHER_LIKE_SQL;
+        
+        try {
+            return pool.read(connection -> {
+                List<Teacher> teachers = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, "%" + name + "%");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        teachers.add(mapTeacher(rs));
+                    }
+                }
+                return teachers;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to search teachers: " + e.getMessage(), e);
+        }
+    }
+    
+    // Search courses by title - ranked prefix match on each word of the title
+    public List<Course> searchCoursesByTitle(String title) throws SQLException {
+        return metrics.time("searchCoursesByTitle", () -> doSearchCoursesByTitle(title));
+    }
+    
+    private List<Course> doSearchCoursesByTitle(String title) throws SQLException {
+        String query = toPrefixQuery(title);
+        if (!searchIndexAvailable || query == null) {
+            return searchCoursesByTitleLike(title);
+        }
+        
+        String sql = COURSE_SEARCH_SQL;
+        
+        try {
+            return pool.read(connection -> {
+                List<Course> courses = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, query);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        courses.add(mapCourse(rs));
+                    }
+                }
+                return courses;
+            });
         } catch (SQLException e) {
             throw new SQLException("Failed to search courses: " + e.getMessage(), e);
         }
+    }
+    
+    private List<Course> searchCoursesByTitleLike(String title) throws SQLException {
+        String sql = COURSE_LIKE_SQL;
         
+        try {
+            return pool.read(connection -> {
+                List<Course> courses = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, "%" + title + "%");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        courses.add(mapCourse(rs));
+                    }
+                }
+                return courses;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to search courses: " + e.getMessage(), e);
+        }
+    }
+    
+    // Search results as a lazy stream in rank order, for callers that show results as they
+    // arrive and may stop early. Closing the stream stops the query; it must always be closed.
+    public Stream<Student> streamStudentSearch(String name) throws SQLException {
+        return metrics.time("streamStudentSearch", () -> doStreamStudentSearch(name));
+    }
+    
+    private Stream<Student> doStreamStudentSearch(String name) throws SQLException {
+        String query = toPrefixQuery(name);
+        if (!searchIndexAvailable || query == null) {
+            return streamQuery(STUDENT_LIKE_SQL, SchoolDB::mapStudent, "students", "%" + name + "%");
+        }
+        return streamQuery(STUDENT_SEARCH_SQL, SchoolDB::mapStudent, "students", query);
+    }
+    
+    public Stream<Teacher> streamTeacherSearch(String name) throws SQLException {
+        return metrics.time("streamTeacherSearch", () -> doStreamTeacherSearch(name));
+    }
+    
+    private Stream<Teacher> doStreamTeacherSearch(String name) throws SQLException {
+        String query = toPrefixQuery(name);
+        if (!searchIndexAvailable || query == null) {
+            return streamQuery(TEACHER_LIKE_SQL, SchoolDB::mapTeacher, "teachers", "%" + name + "%");
+        }
+        return streamQuery(TEACHER_SEARCH_SQL, SchoolDB::mapTeacher, "teachers", query);
+    }
+    
+    public Stream<Course> streamCourseSearch(String title) throws SQLException {
+        return metrics.time("streamCourseSearch", () -> doStreamCourseSearch(title));
+    }
+    
+    private Stream<Course> doStreamCourseSearch(String title) throws SQLException {
+        String query = toPrefixQuery(title);
+        if (!searchIndexAvailable || query == null) {
+            return streamQuery(COURSE_LIKE_SQL, SchoolDB::mapCourse, "courses", "%" + title + "%");
+        }
+        return streamQuery(COURSE_SEARCH_SQL, SchoolDB::mapCourse, "courses", query);
+    }
+    
+    // Best few matches for a picker: entries whose words start with the typed words, best first,
+    // led by the entry with that exact ID when the text is a number. Served from the in-memory
+    // name index once loadNameIndexes() has finished, from the full-text index until then.
+    // When that finds fewer than limit, fuzzy matches fill the list, so typos still find the name.
+    public List<Student> suggestStudents(String text, int limit) throws SQLException {
+        return metrics.time("suggestStudents", () -> doSuggestStudents(text, limit));
+    }
+    
+    private List<Student> doSuggestStudents(String text, int limit) throws SQLException {
+        List<Student> students = studentNames.isReady()
+                ? loadByIds("SELECT * FROM students WHERE id IN ", studentNames.search(text, limit),
+                        SchoolDB::mapStudent, Student::getId, "students")
+                : suggest(text, limit, STUDENT_SEARCH_SQL, STUDENT_LIKE_SQL, SchoolDB::mapStudent, "students");
+        if (students.size() < limit) {
+            appendMissing(students, doFuzzySearchStudents(text, limit), Student::getId, limit);
+        }
+        Integer id = parseId(text);
+        if (id != null) {
+            addById(students, doGetStudentById(id), Student::getId, limit);
+        }
+        return students;
+    }
+    
+    public List<Teacher> suggestTeachers(String text, int limit) throws SQLException {
+        return metrics.time("suggestTeachers", () -> doSuggestTeachers(text, limit));
+    }
+    
+    private List<Teacher> doSuggestTeachers(String text, int limit) throws SQLException {
+        List<Teacher> teachers = teacherNames.isReady()
+                ? loadByIds("SELECT * FROM teachers WHERE id IN ", teacherNames.search(text, limit),
+                        SchoolDB::mapTeacher, Teacher::getId, "teachers")
+                : suggest(text, limit, TEACHER_SEARCH_SQL, TEACHER_LIKE_SQL, SchoolDB::mapTeacher, "teachers");
+        if (teachers.size() < limit) {
+            appendMissing(teachers, doFuzzySearchTeachers(text, limit), Teacher::getId, limit);
+        }
+        Integer id = parseId(text);
+        if (id != null) {
+            addById(teachers, doGetTeacherById(id), Teacher::getId, limit);
+        }
+        return teachers;
+    }
+    
+    public List<Course> suggestCourses(String text, int limit) throws SQLException {
+        return metrics.time("suggestCourses", () -> doSuggestCourses(text, limit));
+    }
+    
+    private List<Course> doSuggestCourses(String text, int limit) throws SQLException {
+        List<Course> courses = courseTitles.isReady()
+                ? loadByIds(COURSE_BY_IDS_SQL, courseTitles.search(text, limit),
+                        SchoolDB::mapCourse, Course::getCourseId, "courses")
+                : suggest(text, limit, COURSE_SEARCH_SQL, COURSE_LIKE_SQL, SchoolDB::mapCourse, "courses");
+        if (courses.size() < limit) {
+            appendMissing(courses, doFuzzySearchCourses(text, limit), Course::getCourseId, limit);
+        }
+        Integer id = parseId(text);
+        if (id != null) {
+            addById(courses, doGetCourseById(id), Course::getCourseId, limit);
+        }
         return courses;
     }
     
+    // Typo-tolerant search: names that are spelled or sound similar to the text, most similar first.
+    // Tolerates Arabic spelling variants and English transliterations (see NameNormalizer).
+    public List<FuzzyNameIndex.Match> fuzzyMatch(String entity, String text, int limit) throws SQLException {
+        return metrics.time("fuzzyMatch", () -> doFuzzyMatch(entity, text, limit));
+    }
+    
+    private List<FuzzyNameIndex.Match> doFuzzyMatch(String entity, String text, int limit) throws SQLException {
+        try {
+            return pool.read(connection ->
+                    fuzzyIndex.search(connection, entity, text, limit, FuzzyNameIndex.DEFAULT_MIN_SIMILARITY));
+        } catch (SQLException e) {
+            throw new SQLException("Failed to search names: " + e.getMessage(), e);
+        }
+    }
+    
+    public List<Student> fuzzySearchStudents(String name, int limit) throws SQLException {
+        return metrics.time("fuzzySearchStudents", () -> doFuzzySearchStudents(name, limit));
+    }
+    
+    private List<Student> doFuzzySearchStudents(String name, int limit) throws SQLException {
+        return loadByIds("SELECT * FROM students WHERE id IN ", matchIds(doFuzzyMatch(FuzzyNameIndex.STUDENTS, name, limit)),
+                SchoolDB::mapStudent, Student::getId, "students");
+    }
+    
+    public List<Teacher> fuzzySearchTeachers(String name, int limit) throws SQLException {
+        return metrics.time("fuzzySearchTeachers", () -> doFuzzySearchTeachers(name, limit));
+    }
+    
+    private List<Teacher> doFuzzySearchTeachers(String name, int limit) throws SQLException {
+        return loadByIds("SELECT * FROM teachers WHERE id IN ", matchIds(doFuzzyMatch(FuzzyNameIndex.TEACHERS, name, limit)),
+                SchoolDB::mapTeacher, Teacher::getId, "teachers");
+    }
+    
+    public List<Course> fuzzySearchCourses(String title, int limit) throws SQLException {
+        return metrics.time("fuzzySearchCourses", () -> doFuzzySearchCourses(title, limit));
+    }
+    
+    private List<Course> doFuzzySearchCourses(String title, int limit) throws SQLException {
+        return loadByIds(COURSE_BY_IDS_SQL, matchIds(doFuzzyMatch(FuzzyNameIndex.COURSES, title, limit)),
+                SchoolDB::mapCourse, Course::getCourseId, "courses");
+    }
+    
+    private static int[] matchIds(List<FuzzyNameIndex.Match> matches) {
+        int[] ids = new int[matches.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = matches.get(i).getId();
+        }
+        return ids;
+    }
+    
+    // Add rows not already listed, in order, until the list is full
+    private static <T> void appendMissing(List<T> rows, List<T> more, ToIntFunction<T> idOf, int limit) {
+        for (T row : more) {
+            if (rows.size() >= limit) {
+                return;
+            }
+            int id = idOf.applyAsInt(row);
+            if (rows.stream().noneMatch(existing -> idOf.applyAsInt(existing) == id)) {
+                rows.add(row);
+            }
+        }
+    }
+    
+    // Ranked prefix lookup with the row limit applied by SQLite, so only the top rows are sorted and read
+    private <T> List<T> suggest(String text, int limit, String searchSql, String likeSql,
+                                RowMapper<T> mapper, String entityName) throws SQLException {
+        if (text.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        String query = toPrefixQuery(text);
+        boolean useIndex = searchIndexAvailable && query != null;
+        String sql = (useIndex ? searchSql : likeSql) + " LIMIT ?";
+        String param = useIndex ? query : text.trim() + "%";
+        
+        try {
+            return pool.read(connection -> {
+                List<T> rows = new ArrayList<>();
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setString(1, param);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(mapper.map(rs));
+                    }
+                }
+                return rows;
+            });
+        } catch (SQLException e) {
+            throw new SQLException("Failed to search " + entityName + ": " + e.getMessage(), e);
+        }
+    }
+    
+    // Rows for a list of IDs, returned in the order of the list; IDs deleted meanwhile are skipped.
+    // The IDs are bound as one JSON array, so every call with a prefix uses the same SQL and a
+    // single cached statement whatever the number of IDs.
+    private <T> List<T> loadByIds(String sqlPrefix, int[] ids, RowMapper<T> mapper, ToIntFunction<T> idOf,
+                                  String entityName) throws SQLException {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        
+        String query = sqlPrefix + "(SELECT value FROM json_each(?))";
+        StringBuilder idArray = new StringBuilder("[");
+        for (int i = 0; i < ids.length; i++) {
+            idArray.append(i == 0 ? "" : ",").append(ids[i]);
+        }
+        String idJson = idArray.append(']').toString();
+        
+        try {
+            Map<Integer, T> rows = pool.read(connection -> {
+                Map<Integer, T> found = new HashMap<>();
+                PreparedStatement pstmt = pool.prepare(connection, query);
+                pstmt.setString(1, idJson);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        T row = mapper.map(rs);
+                        found.put(idOf.applyAsInt(row), row);
+                    }
+                }
+                return found;
+            });
+            
+            List<T> ordered = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                T row = rows.get(id);
+                if (row != null) {
+                    ordered.add(row);
+                }
+            }
+            return ordered;
+        } catch (SQLException e) {
+            throw new SQLException("Failed to retrieve " + entityName + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private static Integer parseId(String text) {
+        try {
+            return Integer.valueOf(text.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    // Put the exact ID match first, without listing it twice or exceeding the limit
+    private static <T> void addById(List<T> rows, T match, ToIntFunction<T> idOf, int limit) {
+        if (match == null) {
+            return;
+        }
+        int id = idOf.applyAsInt(match);
+        rows.removeIf(row -> idOf.applyAsInt(row) == id);
+        rows.add(0, match);
+        if (rows.size() > limit) {
+            rows.remove(rows.size() - 1);
+        }
+    }
+    
     // Delete student from database
     public boolean deleteStudent(int id) throws SQLException {
+        return metrics.time("deleteStudent", () -> doDeleteStudent(id));
+    }
+    
+    private boolean doDeleteStudent(int id) throws SQLException {
         String sql = "DELETE FROM students WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return transaction(db -> pool.write(connection -> {
+                List<ChangeEvent> cascaded = cascadedEnrollments(connection, "student_id", id);
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, id);
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.remove(connection, FuzzyNameIndex.STUDENTS, id);
+                    publish(new ChangeEvent(ChangeEvent.Entity.STUDENT, ChangeEvent.Kind.DELETE, id));
+                    cascaded.forEach(this::publish);
+                }
+                return rowsAffected > 0;
+            }));
         } catch (SQLException e) {
             throw new SQLException("Failed to delete student: " + e.getMessage(), e);
+        } finally {
+            invalidateStudent(id);
         }
     }
     
     // Delete teacher from database
     public boolean deleteTeacher(int id) throws SQLException {
+        return metrics.time("deleteTeacher", () -> doDeleteTeacher(id));
+    }
+    
+    private boolean doDeleteTeacher(int id) throws SQLException {
         String sql = "DELETE FROM teachers WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return transaction(db -> pool.write(connection -> {
+                List<ChangeEvent> cascaded = cascadedCourseUpdates(connection, id);
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, id);
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.remove(connection, FuzzyNameIndex.TEACHERS, id);
+                    publish(new ChangeEvent(ChangeEvent.Entity.TEACHER, ChangeEvent.Kind.DELETE, id));
+                    cascaded.forEach(this::publish);
+                }
+                return rowsAffected > 0;
+            }));
         } catch (SQLException e) {
             throw new SQLException("Failed to delete teacher: " + e.getMessage(), e);
+        } finally {
+            invalidateTeacher(id);
         }
     }
     
     // Delete course from database
     public boolean deleteCourse(int courseId) throws SQLException {
+        return metrics.time("deleteCourse", () -> doDeleteCourse(courseId));
+    }
+    
+    private boolean doDeleteCourse(int courseId) throws SQLException {
         String sql = "DELETE FROM courses WHERE course_id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, courseId);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        try {
+            return transaction(db -> pool.write(connection -> {
+                List<ChangeEvent> cascaded = cascadedEnrollments(connection, "course_id", courseId);
+                PreparedStatement pstmt = pool.prepare(connection, sql);
+                pstmt.setInt(1, courseId);
+                int rowsAffected = pstmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    fuzzyIndex.remove(connection, FuzzyNameIndex.COURSES, courseId);
+                    publish(new ChangeEvent(ChangeEvent.Entity.COURSE, ChangeEvent.Kind.DELETE, courseId));
+                    cascaded.forEach(this::publish);
+                }
+                return rowsAffected > 0;
+            }));
         } catch (SQLException e) {
             throw new SQLException("Failed to delete course: " + e.getMessage(), e);
         }
     }
     
+    // Enrollments that ON DELETE CASCADE will remove with a student or course, read before the delete
+    private List<ChangeEvent> cascadedEnrollments(Connection connection, String column, int id) throws SQLException {
+        List<ChangeEvent> changes = new ArrayList<>();
+        if (!changeBus.hasListeners()) {
+            return changes;
+        }
+        PreparedStatement pstmt = pool.prepare(connection,
+                "SELECT student_id, course_id FROM enrollments WHERE " + column + " = ?");
+        pstmt.setInt(1, id);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                changes.add(ChangeEvent.enrollment(ChangeEvent.Kind.DELETE, rs.getInt("student_id"), rs.getInt("course_id")));
+            }
+        }
+        return changes;
+    }
+    
+    // Courses that ON DELETE SET NULL will leave without a teacher, read before the teacher is deleted
+    private List<ChangeEvent> cascadedCourseUpdates(Connection connection, int teacherId) throws SQLException {
+        List<ChangeEvent> changes = new ArrayList<>();
+        if (!changeBus.hasListeners()) {
+            return changes;
+        }
+        PreparedStatement pstmt = pool.prepare(connection, "SELECT course_id FROM courses WHERE teacher_id = ?");
+        pstmt.setInt(1, teacherId);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                changes.add(new ChangeEvent(ChangeEvent.Entity.COURSE, ChangeEvent.Kind.UPDATE, rs.getInt("course_id")));
+            }
+        }
+        return changes;
+    }
+    
+    public DurabilityProfile getDurabilityProfile() {
+        return profile;
+    }
+    
+    // Switch the student/teacher lookup caches on or off
+    public void setEntityCacheEnabled(boolean enabled) {
+        studentCache.setEnabled(enabled);
+        teacherCache.setEnabled(enabled);
+    }
+    
+    public boolean isEntityCacheEnabled() {
+        return studentCache.isEnabled();
+    }
+    
+    // Caches exposed for hit-rate and eviction metrics
+    public EntityCache<Student> getStudentCache() {
+        return studentCache;
+    }
+    
+    public EntityCache<Teacher> getTeacherCache() {
+        return teacherCache;
+    }
+    
+    // Prepared statement cache statistics across all pooled connections
+    public long getStatementCacheHits() {
+        return pool.getStatementCacheHits();
+    }
+    
+    public long getStatementCacheMisses() {
+        return pool.getStatementCacheMisses();
+    }
+    
+    // Per-operation latencies and counts, also published over JMX
+    public OperationMetrics getMetrics() {
+        return metrics;
+    }
+    
+    // Log statements taking at least thresholdMillis to a size-rotated file, with their parameters
+    // (text ones shown as their length with redactNames) and query plans
+    public void enableSlowQueryLog(Path file, long thresholdMillis, boolean redactNames) {
+        setSlowQueryLog(new SlowQueryLog(dbUrl, file, thresholdMillis, redactNames));
+    }
+    
+    // Stop logging slow statements; entries already queued are still written
+    public void disableSlowQueryLog() {
+        setSlowQueryLog(null);
+    }
+    
+    public synchronized SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+    
+    private synchronized void setSlowQueryLog(SlowQueryLog log) {
+        SlowQueryLog previous = slowQueryLog;
+        slowQueryLog = log;
+        pool.setSlowQueryLog(log);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+    
     // Close database connection
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
+        synchronized (this) {
+            if (nameIndexExecutor != null) {
+                nameIndexExecutor.shutdownNow();
             }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+            if (slowQueryLog != null) {
+                slowQueryLog.close();
+                slowQueryLog = null;
+            }
+        }
+        metrics.close();
+        if (pool != null && pool.isOpen()) {
+            pool.close();
+            System.out.println("Database connection closed.");
         }
     }
     
     // Check if database is connected
     public boolean isConnected() {
-        try {
-            return connection != null && !connection.isClosed();
-        } catch (SQLException e) {
-            return false;
-        }
+        return pool != null && pool.isOpen();
     }
 }
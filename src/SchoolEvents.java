@@ -0,0 +1,174 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Java Flight Recorder events for database calls, view loads and user actions
+ * The events are only recorded while a recording with them enabled is running, e.g. started with
+ * -XX:StartFlightRecording or from JDK Mission Control, so a slow desk can be examined without
+ * attaching a profiler. They appear under "School Management" next to the JVM's own GC and thread events.
+ * Database calls are only recorded from 1 ms by default, since cached lookups take well under a
+ * microsecond; a recording setting of school.DatabaseCall#threshold=0 ms records every call.
+ */
+public final class SchoolEvents {
+    private static final String CATEGORY = "School Management";
+    
+    // Looked up once so a database call can skip creating its event when no recording wants it
+    private static final EventType DATABASE_CALL_TYPE = EventType.getEventType(DatabaseCall.class);
+    
+    // Entity of each database operation, worked out from its name on first use
+    private static final Map<String, String> OPERATION_ENTITIES = new ConcurrentHashMap<>();
+    
+    private SchoolEvents() {
+    }
+    
+    @Name("school.DatabaseCall")
+    @Label("Database Call")
+    @Category({CATEGORY, "Database"})
+    @Description("A public SchoolDB method, from call to return")
+    @StackTrace(false)
+    @Threshold("1 ms")
+    public static class DatabaseCall extends Event {
+        @Label("Operation")
+        String operation;
+        
+        @Label("Entity")
+        String entity;
+        
+        @Label("Rows")
+        @Description("Rows returned or changed")
+        long rows;
+        
+        @Label("Failed")
+        boolean failed;
+        
+        // Commit the call if the recording wants it; the entity is only worked out then
+        void finish(String operation, long rows, boolean failed) {
+            end();
+            if (shouldCommit()) {
+                this.operation = operation;
+                this.entity = OPERATION_ENTITIES.computeIfAbsent(operation, SchoolEvents::entityOf);
+                this.rows = rows;
+                this.failed = failed;
+                commit();
+            }
+        }
+    }
+    
+    @Name("school.ViewLoad")
+    @Label("View Load")
+    @Category({CATEGORY, "User Interface"})
+    @Description("Rows loaded into a table or picker, from the request until they are shown on the event thread. " +
+            "Loads superseded by a newer one are not recorded.")
+    @StackTrace(false)
+    public static class ViewLoad extends Event {
+        @Label("View")
+        String view;
+        
+        @Label("Entity")
+        String entity;
+        
+        @Label("Kind")
+        @Description("keys, page, row or suggestions")
+        String kind;
+        
+        @Label("Rows")
+        long rows;
+        
+        // Called on the event thread once the rows are shown
+        public void finish(long rows) {
+            end();
+            if (shouldCommit()) {
+                this.rows = rows;
+                commit();
+            }
+        }
+    }
+    
+    @Name("school.UserAction")
+    @Label("User Action")
+    @Category({CATEGORY, "User Interface"})
+    @Description("A listener handling a button, menu item or database change on the event thread. " +
+            "The rows it reads or writes are counted by the database call and view load events it starts.")
+    @StackTrace(false)
+    public static class UserAction extends Event {
+        @Label("Action")
+        String action;
+        
+        @Label("Entity")
+        String entity;
+        
+        public void finish() {
+            end();
+            if (shouldCommit()) {
+                commit();
+            }
+        }
+    }
+    
+    // Start timing a database call, or null when no running recording has database calls enabled
+    public static DatabaseCall databaseCall() {
+        if (!DATABASE_CALL_TYPE.isEnabled()) {
+            return null;
+        }
+        DatabaseCall event = new DatabaseCall();
+        event.begin();
+        return event;
+    }
+    
+    // Start timing a view load; call finish() on the event thread when its rows are shown
+    public static ViewLoad viewLoad(String view, ChangeEvent.Entity entity, String kind) {
+        ViewLoad event = new ViewLoad();
+        if (event.isEnabled()) {
+            event.view = view;
+            event.entity = nameOf(entity);
+            event.kind = kind;
+            event.begin();
+        }
+        return event;
+    }
+    
+    // Start timing a listener
+    public static UserAction userAction(String action, ChangeEvent.Entity entity) {
+        UserAction event = new UserAction();
+        if (event.isEnabled()) {
+            event.action = action;
+            event.entity = nameOf(entity);
+            event.begin();
+        }
+        return event;
+    }
+    
+    private static String nameOf(ChangeEvent.Entity entity) {
+        return entity == null ? "" : entity.name();
+    }
+    
+    // The entity named first in an operation, e.g. COURSE for getCoursesByTeacher and
+    // ENROLLMENT for enrollStudentInCourse; empty for operations like inTransaction
+    private static String entityOf(String operation) {
+        String lower = operation.toLowerCase(Locale.ROOT);
+        String[] words = {"enroll", "student", "teacher", "course"};
+        ChangeEvent.Entity[] entities = {ChangeEvent.Entity.ENROLLMENT, ChangeEvent.Entity.STUDENT,
+                ChangeEvent.Entity.TEACHER, ChangeEvent.Entity.COURSE};
+        
+        ChangeEvent.Entity found = null;
+        int first = Integer.MAX_VALUE;
+        for (int i = 0; i < words.length; i++) {
+            int index = lower.indexOf(words[i]);
+            if (index >= 0 && index < first) {
+                first = index;
+                found = entities[i];
+            }
+        }
+        return nameOf(found);
+    }
+}
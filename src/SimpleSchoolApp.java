@@ -3,8 +3,6 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * نسخة مبسطة من تطبيق إدارة المدرسة بدون قاعدة بيانات
@@ -12,9 +10,9 @@ import java.util.List;
  */
 public class SimpleSchoolApp extends JFrame {
     // قوائم لحفظ البيانات في الذاكرة
-    private List<Student> students = new ArrayList<>();
-    private List<Teacher> teachers = new ArrayList<>();
-    private List<Course> courses = new ArrayList<>();
+    private final InMemoryRepository<Student> students = new InMemoryRepository<>("Student", Student::getId);
+    private final InMemoryRepository<Teacher> teachers = new InMemoryRepository<>("Teacher", Teacher::getId);
+    private final InMemoryRepository<Course> courses = new InMemoryRepository<>("Course", Course::getCourseId);
     
     private JTabbedPane tabbedPane;
     
@@ -379,12 +377,7 @@ public class SimpleSchoolApp extends JFrame {
     }
     
     private Teacher findTeacherById(int id) {
-        for (Teacher teacher : teachers) {
-            if (teacher.getId() == id) {
-                return teacher;
-            }
-        }
-        return null;
+        return teachers.findById(id);
     }
     
     private void clearStudentFields() {
@@ -0,0 +1,446 @@
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log of SQL statements slower than a threshold
+ * Statements prepared through the connection pool are timed while SQLite works on them: the execute
+ * call plus every next() on the result set, so time the caller spends on each row is not counted.
+ * The total is checked once the result set has been read to the end or closed. Streaming cursors
+ * (SchoolDB.streamQuery) do not go through the pool and are not logged. Slow statements are queued
+ * with their parameters; a background thread adds the EXPLAIN QUERY PLAN output and appends them
+ * to a log file that rotates by size.
+ * The queue is bounded, so when the writer falls behind entries are dropped (and counted) instead
+ * of making the query wait.
+ */
+public class SlowQueryLog {
+    // Keys in the config file read by the default SchoolDB constructor; no threshold means no log
+    public static final String THRESHOLD_KEY = "db.slowQuery.thresholdMs";
+    public static final String FILE_KEY = "db.slowQuery.file";
+    public static final String REDACT_KEY = "db.slowQuery.redactNames";
+    public static final String DEFAULT_FILE = "slow-queries.log";
+
+    private static final long MAX_FILE_BYTES = 5L * 1024 * 1024;
+    private static final int MAX_ROTATED_FILES = 5;
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final int PLAN_CACHE_SIZE = 200;
+    private static final long POLL_MILLIS = 100;
+
+    private final String dbUrl;
+    private final Path file;
+    private final long thresholdNanos;
+    private final boolean redactNames;
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong logged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    // Only touched by the writer thread
+    private BufferedWriter out;
+    private long fileBytes;
+    private Connection planConnection;
+    private final Map<String, List<String>> plans = new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            return size() > PLAN_CACHE_SIZE;
+        }
+    };
+
+    // One slow statement
+    private static class Entry {
+        final long timestamp = System.currentTimeMillis();
+        final String sql;
+        final Object[] parameters;
+        final int batchSize;
+        final long elapsedNanos;
+        final long rows;
+        final boolean query;
+
+        Entry(String sql, Object[] parameters, int batchSize, long elapsedNanos, long rows, boolean query) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.batchSize = batchSize;
+            this.elapsedNanos = elapsedNanos;
+            this.rows = rows;
+            this.query = query;
+        }
+    }
+
+    // Constructor - dbUrl is opened separately to explain the slow statements.
+    // With redactNames, text parameters (names, titles, search terms) are logged as their length only.
+    public SlowQueryLog(String dbUrl, Path file, long thresholdMillis, boolean redactNames) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative");
+        }
+        this.dbUrl = dbUrl;
+        this.file = file;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.redactNames = redactNames;
+
+        writerThread = new Thread(this::writeLoop, "slow-query-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // Log configured in a config file, or null when it has no threshold
+    public static SlowQueryLog fromConfig(String path, String dbUrl) {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(path)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+
+        String threshold = properties.getProperty(THRESHOLD_KEY);
+        if (threshold == null || threshold.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new SlowQueryLog(dbUrl, Paths.get(properties.getProperty(FILE_KEY, DEFAULT_FILE).trim()),
+                    Long.parseLong(threshold.trim()),
+                    Boolean.parseBoolean(properties.getProperty(REDACT_KEY, "true").trim()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid " + THRESHOLD_KEY + " '" + threshold + "' in " + path + ", not logging slow queries");
+            return null;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    public long getLoggedCount() {
+        return logged.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Wrap a statement so its executions are timed. The wrapper belongs to one use of the statement.
+    public PreparedStatement watch(String sql, PreparedStatement pstmt) {
+        return (PreparedStatement) Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, new StatementHandler(sql, pstmt));
+    }
+
+    private void report(String sql, Object[] parameters, int batchSize, long elapsedNanos, long rows, boolean query) {
+        if (elapsedNanos < thresholdNanos || closed) {
+            return;
+        }
+        if (!queue.offer(new Entry(sql, parameters, batchSize, elapsedNanos, rows, query))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    // Records parameters and times execute calls; everything else goes straight to the statement
+    private class StatementHandler implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement target;
+        private Object[] parameters = new Object[0];
+        private Object[] firstBatchRow;
+        private int batchSize;
+
+        StatementHandler(String sql, PreparedStatement target) {
+            this.sql = sql;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = (Integer) args[0];
+                if (index > parameters.length) {
+                    parameters = Arrays.copyOf(parameters, index);
+                }
+                parameters[index - 1] = name.equals("setNull") ? null : args[1];
+            } else if (name.equals("clearParameters")) {
+                parameters = new Object[0];
+            } else if (name.equals("addBatch") && args == null) {
+                if (batchSize++ == 0) {
+                    firstBatchRow = parameters.clone();
+                }
+            }
+
+            boolean timed = args == null && (name.equals("executeQuery") || name.equals("executeUpdate")
+                    || name.equals("executeBatch") || name.equals("executeLargeBatch") || name.equals("execute"));
+            long start = timed ? System.nanoTime() : 0;
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (!timed) {
+                return result;
+            }
+
+            if (result instanceof ResultSet) {
+                return Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                        new ResultSetHandler(sql, parameters.clone(), (ResultSet) result, System.nanoTime() - start));
+            }
+            long elapsed = System.nanoTime() - start;
+            if (name.endsWith("Batch")) {
+                report(sql, firstBatchRow, batchSize, elapsed, sum(result), false);
+                batchSize = 0;
+                firstBatchRow = null;
+            } else {
+                report(sql, parameters.clone(), 0, elapsed, result instanceof Number ? ((Number) result).longValue() : 0, false);
+            }
+            return result;
+        }
+    }
+
+    // Counts rows and reports once the result set is read to the end or closed
+    private class ResultSetHandler implements InvocationHandler {
+        private final String sql;
+        private final Object[] parameters;
+        private final ResultSet target;
+        private long elapsedNanos;
+        private long rows;
+        private boolean done;
+
+        ResultSetHandler(String sql, Object[] parameters, ResultSet target, long executeNanos) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.target = target;
+            this.elapsedNanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean next = name.equals("next");
+            long start = next ? System.nanoTime() : 0;
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (next) {
+                elapsedNanos += System.nanoTime() - start;
+            }
+
+            if (next && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (!done && (next || name.equals("close"))) {
+                done = true;
+                report(sql, parameters, 0, elapsedNanos, rows, true);
+            }
+            return result;
+        }
+    }
+
+    private static long sum(Object counts) {
+        long total = 0;
+        if (counts instanceof int[]) {
+            for (int count : (int[]) counts) {
+                total += Math.max(0, count);
+            }
+        } else if (counts instanceof long[]) {
+            for (long count : (long[]) counts) {
+                total += Math.max(0, count);
+            }
+        }
+        return total;
+    }
+
+    // Stop accepting entries, write what is queued and close the file
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            // Polled rather than interrupted on close: an interrupt during a write would close the file channel
+            while (!closed || !queue.isEmpty()) {
+                Entry entry;
+                try {
+                    entry = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (entry == null) {
+                    continue;
+                }
+                write(format(entry));
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Slow query log stopped, cannot write " + file + ": " + e.getMessage());
+        } finally {
+            closeWriter();
+        }
+    }
+
+    private String format(Entry entry) {
+        StringBuilder text = new StringBuilder();
+        text.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.ROOT).format(new Date(entry.timestamp)));
+        text.append(String.format(Locale.ROOT, "  %.3f ms  %d rows %s", entry.elapsedNanos / 1_000_000.0, entry.rows,
+                entry.query ? "returned" : "changed"));
+        if (entry.batchSize > 0) {
+            text.append(" in a batch of ").append(entry.batchSize);
+        }
+        text.append(System.lineSeparator());
+        text.append("  ").append(entry.sql.replaceAll("\\s+", " ")).append(System.lineSeparator());
+
+        if (entry.parameters != null && entry.parameters.length > 0) {
+            List<String> values = new ArrayList<>();
+            for (Object value : entry.parameters) {
+                values.add(describe(value));
+            }
+            text.append(entry.batchSize > 0 ? "  first row: " : "  parameters: ").append(values)
+                    .append(System.lineSeparator());
+        }
+        for (String line : plan(entry.sql)) {
+            text.append("  plan: ").append(line).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    private String describe(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof String) {
+            String text = (String) value;
+            return redactNames ? "<text, " + text.length() + " chars>" : "'" + text + "'";
+        }
+        if (value instanceof byte[]) {
+            return "<" + ((byte[]) value).length + " bytes>";
+        }
+        return value.toString();
+    }
+
+    // EXPLAIN QUERY PLAN lines, indented by depth; cached per SQL since plans rarely change
+    private List<String> plan(String sql) {
+        List<String> cached = plans.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<String> lines = new ArrayList<>();
+        try {
+            if (planConnection == null) {
+                planConnection = DriverManager.getConnection(dbUrl);
+                try (Statement stmt = planConnection.createStatement()) {
+                    stmt.execute("PRAGMA query_only = 1");
+                }
+            }
+            Map<Integer, Integer> depths = new HashMap<>();
+            try (Statement stmt = planConnection.createStatement();
+                 ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+                while (rs.next()) {
+                    int depth = depths.getOrDefault(rs.getInt("parent"), -1) + 1;
+                    depths.put(rs.getInt("id"), depth);
+                    lines.add(repeat("  ", depth) + rs.getString("detail"));
+                }
+            }
+            if (lines.isEmpty()) {
+                lines.add("(no table lookups)");
+            }
+        } catch (SQLException e) {
+            lines.add("unavailable: " + e.getMessage());
+        }
+        plans.put(sql, lines);
+        return lines;
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            result.append(text);
+        }
+        return result.toString();
+    }
+
+    private void write(String text) throws IOException {
+        long bytes = text.getBytes(StandardCharsets.UTF_8).length;
+        if (out == null) {
+            out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            fileBytes = Files.size(file);
+        } else if (fileBytes + bytes > MAX_FILE_BYTES && fileBytes > 0) {
+            rotate();
+        }
+        out.write(text);
+        fileBytes += bytes;
+        logged.incrementAndGet();
+    }
+
+    // slow-queries.log becomes slow-queries.log.1, .1 becomes .2 and so on; the oldest is deleted
+    private void rotate() throws IOException {
+        out.close();
+        Files.deleteIfExists(Paths.get(file + "." + MAX_ROTATED_FILES));
+        for (int i = MAX_ROTATED_FILES - 1; i >= 1; i--) {
+            Path older = Paths.get(file + "." + i);
+            if (Files.exists(older)) {
+                Files.move(older, Paths.get(file + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = 0;
+    }
+
+    private void closeWriter() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing slow query log: " + e.getMessage());
+        }
+        try {
+            if (planConnection != null) {
+                planConnection.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error closing slow query log connection: " + e.getMessage());
+        }
+    }
+}
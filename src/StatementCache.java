@@ -0,0 +1,80 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of prepared statements for a single connection
+ * Statements are keyed by their SQL text and the least recently used one is closed when the cache is full.
+ * A connection is only used by one thread at a time, so lookups need no locking; the counters can be read from any thread.
+ */
+public class StatementCache {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    // Constructor
+    public StatementCache(Connection connection, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > maxSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    // Get the cached statement for this SQL, preparing it on first use.
+    // The returned statement is owned by the cache and must not be closed by the caller.
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt != null && !pstmt.isClosed()) {
+            hits.incrementAndGet();
+            return pstmt;
+        }
+        
+        misses.incrementAndGet();
+        pstmt = connection.prepareStatement(sql);
+        statements.put(sql, pstmt);
+        return pstmt;
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public int size() {
+        return statements.size();
+    }
+    
+    // Close every cached statement
+    public void close() {
+        for (PreparedStatement pstmt : statements.values()) {
+            closeQuietly(pstmt);
+        }
+        statements.clear();
+    }
+    
+    private static void closeQuietly(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+}
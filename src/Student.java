@@ -1,5 +1,4 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 
 /**
  * Student class that extends Person
@@ -7,13 +6,13 @@ import java.util.List;
  */
 public class Student extends Person {
     private int gradeLevel;
-    private List<Course> courses; // ArrayList for Collections requirement
+    private IntHashMap<Course> courses; // by course ID, in enrollment order
     
     // Constructor
     public Student(int id, String name, int age, int gradeLevel) {
         super(id, name, age);
         this.gradeLevel = gradeLevel;
-        this.courses = new ArrayList<>();
+        this.courses = new IntHashMap<>();
     }
     
     // Getter and Setter for gradeLevel
@@ -25,9 +24,9 @@ public class Student extends Person {
         this.gradeLevel = gradeLevel;
     }
     
-    // Get enrolled courses
-    public List<Course> getCourses() {
-        return new ArrayList<>(courses); // Return copy for encapsulation
+    // Get enrolled courses - a read-only view in enrollment order
+    public Collection<Course> getCourses() {
+        return courses.values();
     }
     
     // Enroll in a course
@@ -36,20 +35,13 @@ public class Student extends Person {
             throw new IllegalArgumentException("Course cannot be null");
         }
         
-        // Check if already enrolled
-        for (Course enrolledCourse : courses) {
-            if (enrolledCourse.getCourseId() == course.getCourseId()) {
-                return false; // Already enrolled
-            }
-        }
-        
-        courses.add(course);
-        return true;
+        // False if already enrolled
+        return courses.putIfAbsent(course.getCourseId(), course) == null;
     }
     
     // Remove from a course
     public boolean dropCourse(int courseId) {
-        return courses.removeIf(course -> course.getCourseId() == courseId);
+        return courses.remove(courseId) != null;
     }
     
     // Get number of enrolled courses
@@ -59,7 +51,7 @@ public class Student extends Person {
     
     // Check if enrolled in a specific course
     public boolean isEnrolledIn(int courseId) {
-        return courses.stream().anyMatch(course -> course.getCourseId() == courseId);
+        return courses.containsKey(courseId);
     }
     
     // Implementation of abstract method from Person (Polymorphism)
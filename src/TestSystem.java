@@ -1,4 +1,13 @@
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 /**
  * Test class to verify School Management System functionality
@@ -19,8 +28,26 @@ public class TestSystem {
             // Test 3: Test database operations
             testDatabaseOperations();
             
-            System.out.println("\n=== All Tests Completed Successfully! ===");
+            // Test 4: Test the synthetic dataset generator
+            testDatasetGenerator();
+            
+            // Test 5: Test Arabic/English name matching
+            testNameMatching();
+            
+            // Test 6: Test the name autocomplete index
+            testPrefixIndex();
+            
+            // Test 7: Test the int-keyed hash map
+            testIntHashMap();
+            
+            // Test 8: Test nested transactions
+            testNestedTransactions();
             
+            // Test 9: Test migrating a database created before schema migrations
+            testBaselineMigration();
+            
+            System.out.println("\n=== All Tests Completed Successfully! ===");
+        
         } catch (Exception e) {
             System.err.println("Test failed: " + e.getMessage());
             e.printStackTrace();
@@ -123,10 +150,305 @@ public class TestSystem {
             database.closeConnection();
             
             System.out.println("✅ Database operations test passed!\n");
-            
+        
         } catch (Exception e) {
             System.err.println("Database test failed: " + e.getMessage());
             throw new RuntimeException(e);
         }
     }
+    
+    private static void testDatasetGenerator() {
+        System.out.println("4. Testing Dataset Generator:");
+        System.out.println("----------------------------");
+        
+        try {
+            // The same seed must produce the same school
+            String[] names = new String[2];
+            for (int run = 0; run < 2; run++) {
+                File dbFile = File.createTempFile("school-generated", ".db");
+                SchoolDB database = new SchoolDB("jdbc:sqlite:" + dbFile.getAbsolutePath(), 0, DurabilityProfile.BULK_LOAD);
+                try {
+                    DatasetGenerator.Report report = new DatasetGenerator(2000, 7).generate(database);
+                    System.out.println("Generated " + report);
+                    
+                    for (Course course : database.getAllCoursesWithRosters()) {
+                        if (course.getCurrentEnrollment() > course.getMaxCapacity()) {
+                            throw new IllegalStateException("Course " + course.getCourseId() + " is over capacity");
+                        }
+                    }
+                    names[run] = database.getStudentById(1234).getName() + " / " + database.getCourses().get(0).getTitle();
+                } finally {
+                    database.closeConnection();
+                    dbFile.delete();
+                    new File(dbFile.getPath() + "-wal").delete();
+                    new File(dbFile.getPath() + "-shm").delete();
+                }
+            }
+            
+            System.out.println("Sample rows: " + names[0]);
+            if (!names[0].equals(names[1])) {
+                throw new IllegalStateException("Same seed produced different data: " + names[1]);
+            }
+            
+            System.out.println("✅ Dataset generator test passed!\n");
+        
+        } catch (Exception e) {
+            System.err.println("Dataset generator test failed: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+    
+    private static void testNameMatching() {
+        System.out.println("5. Testing Name Matching:");
+        System.out.println("-------------------------");
+        
+        // Spellings of the same name, across scripts and transliterations
+        String[][] samePerson = {
+            {"Mohamad Haddad", "محمد حداد"},
+            {"Muhammad Hadad", "محمد حداد"},
+            {"Mohamad Haddad", "Muhammad Hadad"},
+            {"Ahmad Khalil", "أحمد خليل"},
+            {"Omar", "عمر"},
+            {"Ibrahim", "إبراهيم"}
+        };
+        for (String[] pair : samePerson) {
+            double similarity = FuzzyNameIndex.similarity(pair[0], pair[1]);
+            System.out.printf("%s / %s: %.2f%n", pair[0], pair[1], similarity);
+            if (similarity < FuzzyNameIndex.DEFAULT_MIN_SIMILARITY) {
+                throw new IllegalStateException(pair[0] + " and " + pair[1] + " do not match");
+            }
+        }
+        if (!NameNormalizer.skeleton("Ahmad").equals(NameNormalizer.skeleton("أحمد"))) {
+            throw new IllegalStateException("Word-initial vowels are not kept in skeletons");
+        }
+        if (FuzzyNameIndex.similarity("Ahmad Khalil", "Samir Nasser") >= FuzzyNameIndex.DEFAULT_MIN_SIMILARITY) {
+            throw new IllegalStateException("Unrelated names match");
+        }
+        
+        // The same through the database index
+        File dbFile = null;
+        SchoolDB database = null;
+        try {
+            dbFile = File.createTempFile("school-names", ".db");
+            database = new SchoolDB("jdbc:sqlite:" + dbFile.getAbsolutePath(), 1);
+            database.insertStudent(new Student(1, "محمد حداد", 15, 9));
+            database.insertStudent(new Student(2, "Samir Nasser", 15, 9));
+            List<Student> found = database.fuzzySearchStudents("Mohamad Haddad", 10);
+            if (found.size() != 1 || found.get(0).getId() != 1) {
+                throw new IllegalStateException("Fuzzy search found " + found);
+            }
+            
+            System.out.println("✅ Name matching test passed!\n");
+        
+        } catch (Exception e) {
+            System.err.println("Name matching test failed: " + e.getMessage());
+            throw new RuntimeException(e);
+        } finally {
+            if (database != null) {
+                database.closeConnection();
+            }
+            if (dbFile != null) {
+                dbFile.delete();
+                new File(dbFile.getPath() + "-wal").delete();
+                new File(dbFile.getPath() + "-shm").delete();
+            }
+        }
+    }
+    
+    private static void testPrefixIndex() {
+        System.out.println("6. Testing Name Autocomplete:");
+        System.out.println("-----------------------------");
+        
+        PrefixIndex index = new PrefixIndex("test names");
+        index.load(new int[] {1, 2, 3}, new String[] {"Sara Ali", "Ali Hassan", "Alia Omar"});
+        
+        // Exact words first, then earlier word positions even for longer names, then prefixes
+        expectSearch(index, "ali", 2, 1, 3);
+        
+        // Names written after the load go through the overlay; replaced and removed ones are stale
+        index.put(4, "Ali");
+        index.put(2, "Hassan Ali");
+        index.remove(3);
+        expectSearch(index, "ali", 4, 1, 2);
+        expectSearch(index, "ali has", 2);
+        if (!"Hassan Ali".equals(index.getName(2)) || index.getName(3) != null || index.size() != 3) {
+            throw new IllegalStateException("Overlay names are wrong: " + index.getName(2) + ", " + index.getName(3));
+        }
+        
+        System.out.println("✅ Name autocomplete test passed!\n");
+    }
+    
+    private static void expectSearch(PrefixIndex index, String text, int... expected) {
+        int[] found = index.search(text, 10);
+        System.out.println("'" + text + "': " + Arrays.toString(found));
+        if (!Arrays.equals(found, expected)) {
+            throw new IllegalStateException("Expected " + Arrays.toString(expected) + " for '" + text + "'");
+        }
+    }
+    
+    private static void testIntHashMap() {
+        System.out.println("7. Testing Int Hash Map:");
+        System.out.println("------------------------");
+        
+        // Random puts and removes over few keys keep long probe runs in the table, so removals
+        // shift entries back across collisions and around the end of the table
+        IntHashMap<String> map = new IntHashMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(64) * (random.nextBoolean() ? 1 : -1000);
+            if (random.nextInt(3) == 0) {
+                if (!String.valueOf(map.remove(key)).equals(String.valueOf(expected.remove(key)))) {
+                    throw new IllegalStateException("Wrong value removed for key " + key);
+                }
+            } else {
+                map.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+            
+            int probe = random.nextInt(64) * (random.nextBoolean() ? 1 : -1000);
+            if (map.size() != expected.size() || !String.valueOf(map.get(probe)).equals(String.valueOf(expected.get(probe)))) {
+                throw new IllegalStateException("Map differs from HashMap after " + (i + 1) + " operations");
+            }
+        }
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            if (!entry.getValue().equals(map.get(entry.getKey()))) {
+                throw new IllegalStateException("Key " + entry.getKey() + " lost");
+            }
+        }
+        System.out.println(map.size() + " keys left after 20000 operations, all found");
+        
+        System.out.println("✅ Int hash map test passed!\n");
+    }
+    
+    private static void testNestedTransactions() {
+        System.out.println("8. Testing Nested Transactions:");
+        System.out.println("-------------------------------");
+        
+        File dbFile = null;
+        SchoolDB database = null;
+        try {
+            dbFile = File.createTempFile("school-transactions", ".db");
+            database = new SchoolDB("jdbc:sqlite:" + dbFile.getAbsolutePath(), 1);
+            
+            // A failed inner transaction rolls back to its savepoint and the outer work still commits
+            database.inTransaction(db -> {
+                db.insertStudent(new Student(1, "Outer Student", 15, 9));
+                try {
+                    db.inTransaction(inner -> {
+                        inner.insertStudent(new Student(2, "Inner Student", 15, 9));
+                        throw new IllegalStateException("inner failure");
+                    });
+                } catch (IllegalStateException e) {
+                    // expected
+                }
+                db.insertStudent(new Student(3, "Later Student", 15, 9));
+                return null;
+            });
+            if (database.getStudentById(1) == null || database.getStudentById(2) != null || database.getStudentById(3) == null) {
+                throw new IllegalStateException("Inner rollback was not limited to its savepoint");
+            }
+            
+            // A failed outer transaction rolls back everything, committed inner work included
+            try {
+                database.inTransaction(db -> {
+                    db.inTransaction(inner -> inner.insertStudent(new Student(4, "Inner Student", 15, 9)));
+                    throw new IllegalStateException("outer failure");
+                });
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            if (database.getStudentById(4) != null || database.getStudents().size() != 2) {
+                throw new IllegalStateException("Outer rollback left rows behind");
+            }
+            System.out.println("Students after both transactions: " + database.getStudents().size());
+            
+            System.out.println("✅ Nested transactions test passed!\n");
+        
+        } catch (Exception e) {
+            System.err.println("Nested transactions test failed: " + e.getMessage());
+            throw new RuntimeException(e);
+        } finally {
+            if (database != null) {
+                database.closeConnection();
+            }
+            if (dbFile != null) {
+                dbFile.delete();
+                new File(dbFile.getPath() + "-wal").delete();
+                new File(dbFile.getPath() + "-shm").delete();
+            }
+        }
+    }
+    
+    private static void testBaselineMigration() {
+        System.out.println("9. Testing Baseline Schema Migration:");
+        System.out.println("-------------------------------------");
+        
+        File dbFile = null;
+        SchoolDB database = null;
+        try {
+            // A database as the first release created it: no indexes, no cascades, no version table
+            dbFile = File.createTempFile("school-baseline", ".db");
+            String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE TABLE students (id INTEGER PRIMARY KEY, name TEXT NOT NULL, " +
+                        "age INTEGER NOT NULL, grade_level INTEGER NOT NULL)");
+                stmt.execute("CREATE TABLE teachers (id INTEGER PRIMARY KEY, name TEXT NOT NULL, " +
+                        "age INTEGER NOT NULL, subject TEXT NOT NULL)");
+                stmt.execute("CREATE TABLE courses (course_id INTEGER PRIMARY KEY, title TEXT NOT NULL, " +
+                        "teacher_id INTEGER, max_capacity INTEGER NOT NULL, " +
+                        "FOREIGN KEY (teacher_id) REFERENCES teachers (id))");
+                stmt.execute("CREATE TABLE enrollments (student_id INTEGER, course_id INTEGER, " +
+                        "PRIMARY KEY (student_id, course_id), " +
+                        "FOREIGN KEY (student_id) REFERENCES students (id), " +
+                        "FOREIGN KEY (course_id) REFERENCES courses (course_id))");
+                stmt.execute("INSERT INTO students VALUES (1, 'Ahmad Khalil', 16, 10)");
+                stmt.execute("INSERT INTO teachers VALUES (1, 'Huda Saleh', 40, 'Physics')");
+                stmt.execute("INSERT INTO courses VALUES (1, 'Physics I', 1, 30)");
+                stmt.execute("INSERT INTO enrollments VALUES (1, 1)");
+            }
+            
+            // Opening it applies every migration and keeps the rows
+            database = new SchoolDB(url, 1);
+            if (database.getCourseWithRoster(1).getCurrentEnrollment() != 1
+                    || database.fuzzySearchStudents("Ahmed Khaleel", 5).size() != 1) {
+                throw new IllegalStateException("Existing rows were not carried over");
+            }
+            
+            // Enrollments now go with their student
+            database.deleteStudent(1);
+            if (database.getCourseWithRoster(1).getCurrentEnrollment() != 0) {
+                throw new IllegalStateException("Deleting a student did not cascade to its enrollments");
+            }
+            database.closeConnection();
+            database = null;
+            
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT (SELECT MAX(version) FROM schema_version), " +
+                         "(SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name LIKE 'idx_%')")) {
+                rs.next();
+                System.out.println("Schema version " + rs.getInt(1) + ", " + rs.getInt(2) + " indexes");
+                if (rs.getInt(1) < 5 || rs.getInt(2) < 3) {
+                    throw new IllegalStateException("Migrations were not all applied");
+                }
+            }
+            
+            System.out.println("✅ Baseline schema migration test passed!\n");
+        
+        } catch (Exception e) {
+            System.err.println("Baseline schema migration test failed: " + e.getMessage());
+            throw new RuntimeException(e);
+        } finally {
+            if (database != null) {
+                database.closeConnection();
+            }
+            if (dbFile != null) {
+                dbFile.delete();
+                new File(dbFile.getPath() + "-wal").delete();
+                new File(dbFile.getPath() + "-shm").delete();
+            }
+        }
+    }
 }